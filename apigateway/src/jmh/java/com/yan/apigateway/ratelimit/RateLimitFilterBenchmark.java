@@ -0,0 +1,77 @@
+package com.yan.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Overhead the per-subject rate limit filter adds to an admitted request, on the in-memory store.
+// Every benchmark thread is its own authenticated subject; the limit is high enough that nothing is
+// rejected, so this measures the bucket lookup and CAS, not the 429 path. Run with -prof gc to
+// check the admitted path allocates nothing.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitFilterBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Filter {
+        final ServerResponse upstreamResponse = ServerResponse.ok().build();
+        final HandlerFunction<ServerResponse> next = request -> upstreamResponse;
+        HandlerFilterFunction<ServerResponse, ServerResponse> perSubject;
+
+        @Setup
+        public void setUp() {
+            perSubject = new RateLimitFilters(new InMemoryRateLimiterStore(), new SimpleMeterRegistry())
+                    .perSubject("booking-service", RateLimit.of(1e9, Integer.MAX_VALUE));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Subject {
+        ServerRequest request;
+
+        @Setup
+        public void setUp(final ThreadParams threadParams) {
+            SecurityContextHolder.getContext().setAuthentication(
+                    new TestingAuthenticationToken("user-" + threadParams.getThreadIndex(), null, "ROLE_USER"));
+            request = ServerRequest.create(new MockHttpServletRequest("POST", "/api/v1/booking"), List.of());
+        }
+
+        @TearDown
+        public void tearDown() {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Benchmark
+    public ServerResponse withoutFilter(final Filter filter, final Subject subject) throws Exception {
+        return filter.next.handle(subject.request);
+    }
+
+    @Benchmark
+    public ServerResponse perSubjectFilter(final Filter filter, final Subject subject) throws Exception {
+        return filter.perSubject.filter(subject.request, filter.next);
+    }
+}
@@ -0,0 +1,76 @@
+package com.yan.apigateway.route;
+
+import com.yan.upstream.UpstreamPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.server.mvc.handler.HandlerFunctions;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Per-request work of the inventory proxy path before and after the handler was built once: the old
+// route built a forwarding handler from the base URL and path variable on every request, the new one
+// only picks an instance and sets it as the request URL. The cache key pair compares building the
+// InventoryResponseCache key from the parsed URI with the raw servlet strings it uses now.
+// Run with -prof gc for the bytes allocated per request. The upstream call itself is not included.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryDispatchBenchmark {
+    private static final String INSTANCE = "http://10.0.0.12:8080";
+
+    private final ServerResponse upstreamResponse = ServerResponse.ok().build();
+    private final HandlerFunction<ServerResponse> sharedProxy = request -> upstreamResponse;
+    private HandlerFilterFunction<ServerResponse, ServerResponse> balance;
+    private ServerRequest request;
+
+    @Setup
+    public void setUp() {
+        balance = UpstreamFilterFunctions.balance(UpstreamPool.builder("inventory").urls(INSTANCE).build());
+        final MockHttpServletRequest servletRequest = new MockHttpServletRequest("PUT", "/api/v1/inventory/event/42");
+        servletRequest.setQueryString("fields=capacity");
+        servletRequest.setAttribute(RouterFunctions.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("eventId", "42"));
+        request = ServerRequest.create(servletRequest, List.of());
+    }
+
+    @Benchmark
+    public HandlerFunction<ServerResponse> perRequestForwardingHandler() {
+        return HandlerFunctions.http(INSTANCE + "/api/v1/inventory/event/" + request.pathVariable("eventId"));
+    }
+
+    @Benchmark
+    public ServerResponse sharedProxyHandler() throws Exception {
+        return balance.filter(request, sharedProxy);
+    }
+
+    @Benchmark
+    public String parsedUriCacheKey() {
+        final String query = request.uri().getRawQuery();
+        return request.uri().getRawPath() + (query == null ? "" : "?" + query);
+    }
+
+    @Benchmark
+    public String servletCacheKey() {
+        final String query = request.servletRequest().getQueryString();
+        final String path = request.servletRequest().getRequestURI();
+        return query == null ? path : path + "?" + query;
+    }
+}
@@ -0,0 +1,146 @@
+package com.yan.apigateway.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yan.upstream.UpstreamInstance;
+import com.yan.upstream.UpstreamPool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Serves inventory GETs from a short-lived, size-bounded cache of upstream responses. Concurrent
+// misses for the same path share one upstream request (single flight). Only 200 responses are
+// cached; anything else is handed to the requests that were waiting for it and then forgotten.
+@Component
+public class InventoryResponseCache implements HandlerFunction<ServerResponse> {
+    private static final String CACHE_HEADER = "X-Cache";
+
+    private final UpstreamPool inventoryServicePool;
+    private final RestClient restClient;
+    private final AsyncCache<String, CachedResponse> responses;
+    private final Counter hitCounter;
+    private final Counter coalescedCounter;
+    private final Counter missCounter;
+
+    @Autowired
+    public InventoryResponseCache(final RestClient.Builder restClientBuilder,
+                                  final MeterRegistry meterRegistry,
+                                  final UpstreamPool inventoryServicePool,
+                                  @Value("${gateway.inventory-cache.ttl:2s}") final Duration ttl,
+                                  @Value("${gateway.inventory-cache.maximum-size:10000}") final long maximumSize,
+                                  @Value("${gateway.inventory-cache.upstream-timeout:3s}") final Duration upstreamTimeout) {
+        this.inventoryServicePool = inventoryServicePool;
+        final JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                .connectTimeout(upstreamTimeout)
+                .build());
+        requestFactory.setReadTimeout(upstreamTimeout);
+        this.restClient = restClientBuilder.requestFactory(requestFactory).build();
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        // Hit ratio, evictions and size under /actuator/metrics/cache.*?tag=cache:inventoryResponses
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "inventoryResponses");
+        this.hitCounter = requestCounter(meterRegistry, "hit");
+        this.coalescedCounter = requestCounter(meterRegistry, "coalesced");
+        this.missCounter = requestCounter(meterRegistry, "miss");
+    }
+
+    @Override
+    public ServerResponse handle(final ServerRequest request) {
+        // Raw servlet strings, so building the key does not parse a URI
+        final String query = request.servletRequest().getQueryString();
+        final String path = request.servletRequest().getRequestURI();
+        final String key = query == null ? path : path + "?" + query;
+        // The first request for a key installs its own future and fetches on its own thread;
+        // requests arriving meanwhile wait on that future instead of calling upstream too
+        final CompletableFuture<CachedResponse> loading = new CompletableFuture<>();
+        final CompletableFuture<CachedResponse> response = responses.get(key, (ignored, executor) -> loading);
+        final boolean fetching = response == loading;
+        if(fetching){
+            missCounter.increment();
+            try {
+                loading.complete(fetch(key));
+            } catch (RuntimeException e) {
+                loading.completeExceptionally(e);
+            }
+        } else {
+            (response.isDone() ? hitCounter : coalescedCounter).increment();
+        }
+        final CachedResponse upstream = await(response);
+        return ServerResponse.status(upstream.status())
+                .contentType(upstream.contentType() == null ? MediaType.APPLICATION_JSON : upstream.contentType())
+                .header(CACHE_HEADER, fetching ? "MISS" : "HIT")
+                .body(upstream.body());
+    }
+
+    private CachedResponse fetch(final String path) {
+        final UpstreamInstance instance = inventoryServicePool.choose();
+        final long started = instance.begin();
+        final CachedResponse response;
+        try {
+            response = restClient.get()
+                    .uri(URI.create(instance.uri() + path))
+                    .exchange((clientRequest, clientResponse) -> new CachedResponse(clientResponse.getStatusCode(),
+                            clientResponse.getHeaders().getContentType(),
+                            clientResponse.getBody().readAllBytes()));
+        } catch (RuntimeException e) {
+            instance.end(started, false);
+            throw e;
+        }
+        instance.end(started, !response.status().is5xxServerError());
+        if(response.status().value() != HttpStatus.OK.value()){
+            // Failed futures are dropped from the cache, waiters still get the response
+            throw new UncachedResponseException(response);
+        }
+        return response;
+    }
+
+    private static CachedResponse await(final CompletableFuture<CachedResponse> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof UncachedResponseException uncached){
+                return uncached.response;
+            }
+            throw e;
+        }
+    }
+
+    private static Counter requestCounter(final MeterRegistry meterRegistry, final String result) {
+        return Counter.builder("gateway.inventory.cache.requests")
+                .description("Inventory GETs by how they were answered; hit and coalesced saved an upstream call")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record CachedResponse(HttpStatusCode status, MediaType contentType, byte[] body) {
+    }
+
+    private static class UncachedResponseException extends RuntimeException {
+        private final transient CachedResponse response;
+
+        UncachedResponseException(final CachedResponse response) {
+            super("Upstream answered " + response.status(), null, false, false);
+            this.response = response;
+        }
+    }
+}
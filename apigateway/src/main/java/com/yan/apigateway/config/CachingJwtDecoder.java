@@ -0,0 +1,76 @@
+package com.yan.apigateway.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+// Remembers tokens that passed signature and claim validation, so a bearer token replayed on every
+// request is verified once. Entries are keyed by the SHA-256 of the token and expire at the token's
+// exp or after maxTtl, whichever comes first. Rejected tokens are never cached.
+public class CachingJwtDecoder implements JwtDecoder {
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> verified;
+    private final Clock clock;
+
+    public CachingJwtDecoder(final JwtDecoder delegate, final long maximumSize, final Duration maxTtl) {
+        this(delegate, maximumSize, maxTtl, Clock.systemUTC(), Ticker.systemTicker());
+    }
+
+    CachingJwtDecoder(final JwtDecoder delegate, final long maximumSize, final Duration maxTtl,
+                      final Clock clock, final Ticker ticker) {
+        this.delegate = delegate;
+        this.clock = clock;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(Expiry.<String, Jwt>creating((key, jwt) -> timeToLive(jwt, maxTtl)))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Jwt decode(final String token) throws JwtException {
+        // Concurrent first uses of a token share one verification
+        final Jwt jwt = verified.get(hash(token), key -> delegate.decode(token));
+        if(jwt.getExpiresAt() != null && !jwt.getExpiresAt().isAfter(clock.instant())){
+            // Expired between two cache maintenance runs; let the delegate reject it
+            verified.invalidate(hash(token));
+            return delegate.decode(token);
+        }
+        return jwt;
+    }
+
+    public Cache<String, Jwt> getCache() {
+        return verified;
+    }
+
+    private Duration timeToLive(final Jwt jwt, final Duration maxTtl) {
+        final Instant expiresAt = jwt.getExpiresAt();
+        if(expiresAt == null){
+            return maxTtl;
+        }
+        final Duration untilExpiry = Duration.between(clock.instant(), expiresAt);
+        return untilExpiry.isNegative() ? Duration.ZERO : untilExpiry.compareTo(maxTtl) < 0 ? untilExpiry : maxTtl;
+    }
+
+    private static String hash(final String token) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.yan.apigateway.config;
+
+import com.yan.apigateway.ratelimit.InMemoryRateLimiterStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class RateLimitConfig {
+
+    // Per-instance buckets; a shared store (e.g. Redis) takes over by declaring its RateLimiterStore as @Primary
+    @Bean
+    public InMemoryRateLimiterStore rateLimiterStore(MeterRegistry meterRegistry) {
+        final InMemoryRateLimiterStore store = new InMemoryRateLimiterStore();
+        Gauge.builder("gateway.ratelimit.buckets", store, InMemoryRateLimiterStore::size)
+                .description("Rate limit buckets held in memory")
+                .register(meterRegistry);
+        return store;
+    }
+}
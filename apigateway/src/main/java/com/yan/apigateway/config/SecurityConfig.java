@@ -1,6 +1,20 @@
 package com.yan.apigateway.config;
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -9,8 +23,13 @@ import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+
 @Configuration
 public class SecurityConfig {
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
 
     @Value("${keycloak.auth.jwt-set-uri}")
     private String jwkSetUri;
@@ -18,6 +37,21 @@ public class SecurityConfig {
     @Value("${security.excluded.urls}")
     private String[] excludedUrls;
 
+    @Value("${security.jwt.cache.maximum-size:100000}")
+    private long jwtCacheSize;
+
+    @Value("${security.jwt.cache.max-ttl:5m}")
+    private Duration jwtCacheMaxTtl;
+
+    @Value("${security.jwk.cache-ttl:15m}")
+    private Duration jwkCacheTtl;
+
+    @Value("${security.jwk.refresh-ahead:1m}")
+    private Duration jwkRefreshAhead;
+
+    @Value("${security.jwk.refresh-timeout:5s}")
+    private Duration jwkRefreshTimeout;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity) throws Exception {
         return httpSecurity.authorizeHttpRequests(authorizeRequests->
@@ -29,8 +63,38 @@ public class SecurityConfig {
                 .build();
     }
 
+    // Keycloak keys are cached and refreshed in the background before they expire, so no request
+    // waits on a key fetch once the set has been loaded
+    @Bean
+    public JWKSource<SecurityContext> jwkSource() throws MalformedURLException {
+        return JWKSourceBuilder.create(URI.create(jwkSetUri).toURL())
+                .cache(jwkCacheTtl.toMillis(), jwkRefreshTimeout.toMillis())
+                .refreshAheadCache(jwkRefreshAhead.toMillis(), true)
+                .retrying(true)
+                .build();
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource, MeterRegistry meterRegistry){
+        final DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // Claims are validated by Spring's validators, as with NimbusJwtDecoder.withJwkSetUri
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> { });
+        final CachingJwtDecoder decoder = new CachingJwtDecoder(new NimbusJwtDecoder(jwtProcessor), jwtCacheSize, jwtCacheMaxTtl);
+        CaffeineCacheMetrics.monitor(meterRegistry, decoder.getCache(), "verifiedJwts");
+        return decoder;
+    }
+
+    // Loads the key set at startup instead of on the first authenticated request
     @Bean
-    public JwtDecoder jwtDecoder(){
-        return NimbusJwtDecoder.withJwkSetUri(jwkSetUri).build();
+    public ApplicationListener<ApplicationReadyEvent> jwkSetWarmUp(JWKSource<SecurityContext> jwkSource) {
+        return event -> {
+            try {
+                final int keys = jwkSource.get(new JWKSelector(new JWKMatcher.Builder().build()), null).size();
+                log.info("Loaded {} keys from the JWK set", keys);
+            } catch (Exception e) {
+                log.warn("Could not load the JWK set at startup, keys will be fetched on first use", e);
+            }
+        };
     }
 }
@@ -0,0 +1,79 @@
+package com.yan.apigateway.config;
+
+import com.yan.upstream.UpstreamHealthChecker;
+import com.yan.upstream.UpstreamInstance;
+import com.yan.upstream.UpstreamPool;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Instance pools for the services behind the gateway, balanced on peak EWMA latency and
+// outstanding requests and health-checked on their actuator endpoint
+@Configuration
+public class UpstreamConfig {
+    @Value("${upstream.ewma-decay:10s}")
+    private Duration ewmaDecay;
+
+    @Value("${upstream.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${upstream.ejection:5s}")
+    private Duration ejection;
+
+    @Value("${upstream.health.path:/actuator/health}")
+    private String healthPath;
+
+    @Value("${upstream.health.interval:2s}")
+    private Duration healthInterval;
+
+    @Value("${upstream.health.timeout:1s}")
+    private Duration healthTimeout;
+
+    @Bean
+    public UpstreamPool bookingServicePool(@Value("${upstream.bookingservice.urls:http://localhost:8081}") String urls,
+                                           MeterRegistry meterRegistry) {
+        return pool("bookingservice", urls, meterRegistry);
+    }
+
+    @Bean
+    public UpstreamPool inventoryServicePool(@Value("${upstream.inventoryservice.urls:http://localhost:8080}") String urls,
+                                             MeterRegistry meterRegistry) {
+        return pool("inventoryservice", urls, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public UpstreamHealthChecker bookingServiceHealthChecker(UpstreamPool bookingServicePool) {
+        return new UpstreamHealthChecker(bookingServicePool, healthPath, healthInterval, healthTimeout).start();
+    }
+
+    @Bean(destroyMethod = "close")
+    public UpstreamHealthChecker inventoryServiceHealthChecker(UpstreamPool inventoryServicePool) {
+        return new UpstreamHealthChecker(inventoryServicePool, healthPath, healthInterval, healthTimeout).start();
+    }
+
+    private UpstreamPool pool(final String name, final String urls, final MeterRegistry meterRegistry) {
+        final UpstreamPool pool = UpstreamPool.builder(name)
+                .urls(urls)
+                .decay(ewmaDecay)
+                .failureThreshold(failureThreshold)
+                .ejection(ejection)
+                .build();
+        for(UpstreamInstance instance : pool.instances()){
+            Gauge.builder("gateway.upstream.outstanding", instance, UpstreamInstance::outstanding)
+                    .tag("upstream", name).tag("instance", instance.toString())
+                    .register(meterRegistry);
+            Gauge.builder("gateway.upstream.latency.ewma", instance, i -> i.latencyNanos() / 1_000_000)
+                    .description("Peak EWMA response time in milliseconds")
+                    .tag("upstream", name).tag("instance", instance.toString())
+                    .register(meterRegistry);
+            Gauge.builder("gateway.upstream.available", instance, i -> i.isAvailable() ? 1 : 0)
+                    .tag("upstream", name).tag("instance", instance.toString())
+                    .register(meterRegistry);
+        }
+        return pool;
+    }
+}
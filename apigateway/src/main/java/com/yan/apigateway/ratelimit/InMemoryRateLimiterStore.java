@@ -0,0 +1,75 @@
+package com.yan.apigateway.ratelimit;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Keeps one theoretical arrival time (TAT) per bucket and moves it with a CAS, so admitting a
+// request takes no lock and allocates nothing once the bucket exists
+public class InMemoryRateLimiterStore implements RateLimiterStore {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicLong>> routes = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+
+    public InMemoryRateLimiterStore() {
+        this(System::nanoTime);
+    }
+
+    InMemoryRateLimiterStore(final LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public long acquire(final String route, final String subject, final RateLimit limit) {
+        final AtomicLong tat = bucket(route, subject);
+        final long now = nanoClock.getAsLong();
+        while(true){
+            final long current = tat.get();
+            final long next = Math.max(current, now) + limit.emissionIntervalNanos();
+            final long wait = next - now - limit.burstToleranceNanos();
+            if(wait > 0){
+                return wait;
+            }
+            if(tat.compareAndSet(current, next)){
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for(Map<String, AtomicLong> buckets : routes.values()){
+            size += buckets.size();
+        }
+        return size;
+    }
+
+    // A bucket whose TAT has passed is full again and behaves exactly like a missing one. A request
+    // racing with the removal can at worst be admitted on the dropped bucket, one extra request.
+    @Scheduled(fixedDelayString = "${gateway.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        final long now = nanoClock.getAsLong();
+        for(Map<String, AtomicLong> buckets : routes.values()){
+            buckets.values().removeIf(tat -> {
+                final long current = tat.get();
+                return current == EMPTY || current - now <= 0;
+            });
+        }
+    }
+
+    private AtomicLong bucket(final String route, final String subject) {
+        ConcurrentHashMap<String, AtomicLong> buckets = routes.get(route);
+        if(buckets == null){
+            buckets = routes.computeIfAbsent(route, key -> new ConcurrentHashMap<>());
+        }
+        final AtomicLong tat = buckets.get(subject);
+        if(tat != null){
+            return tat;
+        }
+        return buckets.computeIfAbsent(subject, key -> new AtomicLong(EMPTY));
+    }
+}
@@ -0,0 +1,16 @@
+package com.yan.apigateway.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+// GCRA parameters: one request is admitted every emission interval, and up to burstTolerance
+// worth of intervals may be taken ahead of time (the bucket size)
+public record RateLimit(long emissionIntervalNanos, long burstToleranceNanos) {
+
+    public static RateLimit of(final double permitsPerSecond, final int burst) {
+        if(permitsPerSecond <= 0 || burst < 1){
+            throw new IllegalArgumentException("Rate limit needs a positive rate and a burst of at least 1");
+        }
+        final long emissionInterval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        return new RateLimit(emissionInterval, emissionInterval * burst);
+    }
+}
@@ -0,0 +1,58 @@
+package com.yan.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.concurrent.TimeUnit;
+
+// Route filters that admit requests per JWT subject (the client address for unauthenticated
+// routes) and answer 429 with Retry-After once the subject's bucket is empty
+@Component
+public class RateLimitFilters {
+    private final RateLimiterStore rateLimiterStore;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public RateLimitFilters(final RateLimiterStore rateLimiterStore, final MeterRegistry meterRegistry) {
+        this.rateLimiterStore = rateLimiterStore;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public HandlerFilterFunction<ServerResponse, ServerResponse> perSubject(final String route, final RateLimit limit) {
+        final Counter rejected = Counter.builder("gateway.ratelimit.rejected")
+                .description("Requests rejected by the gateway rate limiter")
+                .tag("route", route)
+                .register(meterRegistry);
+        return (request, next) -> {
+            final long waitNanos = rateLimiterStore.acquire(route, subject(request), limit);
+            if(waitNanos <= 0){
+                return next.handle(request);
+            }
+            rejected.increment();
+            final long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            return ServerResponse.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                    .build();
+        };
+    }
+
+    private static String subject(final ServerRequest request) {
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if(authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)){
+            // JwtAuthenticationToken names the principal after the sub claim
+            return authentication.getName();
+        }
+        return request.servletRequest().getRemoteAddr();
+    }
+}
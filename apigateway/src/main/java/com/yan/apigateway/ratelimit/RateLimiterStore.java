@@ -0,0 +1,9 @@
+package com.yan.apigateway.ratelimit;
+
+// Holds the bucket state per route and subject. The default in-memory store limits each gateway
+// instance on its own; register another RateLimiterStore bean as @Primary to share buckets between instances.
+public interface RateLimiterStore {
+
+    // Returns 0 if the request is admitted, otherwise the nanoseconds until it would be
+    long acquire(String route, String subject, RateLimit limit);
+}
@@ -1,5 +1,9 @@
 package com.yan.apigateway.route;
 
+import com.yan.apigateway.ratelimit.RateLimit;
+import com.yan.apigateway.ratelimit.RateLimitFilters;
+import com.yan.upstream.UpstreamPool;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.server.mvc.filter.CircuitBreakerFilterFunctions;
 import org.springframework.cloud.gateway.server.mvc.handler.GatewayRouterFunctions;
 import org.springframework.cloud.gateway.server.mvc.handler.HandlerFunctions;
@@ -9,21 +13,53 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.servlet.function.*;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 
+import static com.yan.apigateway.route.UpstreamFilterFunctions.balance;
 import static org.springframework.cloud.gateway.server.mvc.filter.FilterFunctions.setPath;
 
 @Configuration
 public class BookingServiceRoutes {
+    static final String QUEUE_TOKEN_HEADER = "X-Queue-Token";
+
+    @Value("${gateway.rate-limit.booking.permits-per-second:5}")
+    private double bookingPermitsPerSecond;
+
+    @Value("${gateway.rate-limit.booking.burst:10}")
+    private int bookingBurst;
+
+    // Rejected requests never reach the circuit breaker, so throttling does not trip it. The
+    // instance is chosen per request from the booking service pool, inside the circuit breaker; a retry
+    // with a queue token goes back to the instance whose waiting room issued it.
     @Bean
-    public RouterFunction<ServerResponse> bookingRoutes() {
+    public RouterFunction<ServerResponse> bookingRoutes(RateLimitFilters rateLimitFilters, UpstreamPool bookingServicePool) {
         return GatewayRouterFunctions.route("booking-service")
-                .route(RequestPredicates.POST("/api/v1/booking"),
-                        HandlerFunctions.http("http://localhost:8081/api/v1/booking"))
+                .route(RequestPredicates.POST("/api/v1/booking"), HandlerFunctions.http())
+                .route(RequestPredicates.POST("/api/v1/booking/batch"), HandlerFunctions.http())
+                .filter(rateLimitFilters.perSubject("booking-service", RateLimit.of(bookingPermitsPerSecond, bookingBurst)))
                 .filter(CircuitBreakerFilterFunctions.circuitBreaker("bookingServiceCircuitBreaker",
                         URI.create("forward:/fallbackRoute")))
+                .filter(balance(bookingServicePool, BookingServiceRoutes::queueTokenIssuer))
                 .build();
     }
 
+    // A queue token starts with the Base64url encoded URL of the instance that issued it. The instance
+    // still verifies the token, so a forged prefix only changes where the request is rejected.
+    static URI queueTokenIssuer(final ServerRequest request) {
+        final String token = request.headers().firstHeader(QUEUE_TOKEN_HEADER);
+        final int dot = token == null ? -1 : token.indexOf('.');
+        if(dot <= 0){
+            return null;
+        }
+        try {
+            final String url = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+            return URI.create(url.endsWith("/") ? url.substring(0, url.length() - 1) : url);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     @Bean
     public RouterFunction<ServerResponse> fallbackRoute() {
         return GatewayRouterFunctions.route("fallbackRoute")
@@ -34,11 +70,11 @@ public class BookingServiceRoutes {
     }
 
     @Bean
-    public RouterFunction<ServerResponse> bookingServiceApiDocs() {
+    public RouterFunction<ServerResponse> bookingServiceApiDocs(UpstreamPool bookingServicePool) {
         return GatewayRouterFunctions.route("booking-service-api-docs")
-                .route(RequestPredicates.path("/docs/bookingservice/v3/api-docs"),
-                        HandlerFunctions.http("http://localhost:8081"))
+                .route(RequestPredicates.path("/docs/bookingservice/v3/api-docs"), HandlerFunctions.http())
                 .filter(setPath("/v3/api-docs"))
+                .filter(balance(bookingServicePool))
                 .build();
     }
 }
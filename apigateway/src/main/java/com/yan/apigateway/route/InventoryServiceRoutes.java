@@ -1,42 +1,55 @@
 package com.yan.apigateway.route;
 
+import com.yan.apigateway.cache.InventoryResponseCache;
+import com.yan.apigateway.ratelimit.RateLimit;
+import com.yan.apigateway.ratelimit.RateLimitFilters;
+import com.yan.upstream.UpstreamPool;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.server.mvc.handler.GatewayRouterFunctions;
 import org.springframework.cloud.gateway.server.mvc.handler.HandlerFunctions;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.function.RequestPredicates;
 import org.springframework.web.servlet.function.RouterFunction;
-import org.springframework.web.servlet.function.ServerRequest;
 import org.springframework.web.servlet.function.ServerResponse;
 
+import static com.yan.apigateway.route.UpstreamFilterFunctions.balance;
 import static org.springframework.cloud.gateway.server.mvc.filter.FilterFunctions.setPath;
 
 @Configuration
 public class InventoryServiceRoutes {
-    @Bean
-    public RouterFunction<ServerResponse> inventoryRoutes() {
-        return GatewayRouterFunctions.route("inventory-service")
-                .route(RequestPredicates.path("/api/v1/inventory/venue/{venueId}"),
-                        request -> forwardWithPathVariable(request, "venueId", "http://localhost:8080/api/v1/inventory/venue"))
+    @Value("${gateway.rate-limit.inventory.permits-per-second:50}")
+    private double inventoryPermitsPerSecond;
 
-                .route(RequestPredicates.path("/api/v1/inventory/event/{eventId}"),
-                        request -> forwardWithPathVariable(request, "eventId", "http://localhost:8080/api/v1/inventory/event/"))
-                .build();
-    }
+    @Value("${gateway.rate-limit.inventory.burst:100}")
+    private int inventoryBurst;
 
-    private static ServerResponse forwardWithPathVariable(ServerRequest request,
-                                                          String pathVariable,
-                                                          String baseUrl) throws Exception {
-        String value = request.pathVariable(pathVariable);
-        return HandlerFunctions.http(baseUrl + value).handle(request);
+    // Event and venue reads are answered from the gateway cache, which balances its own misses;
+    // other methods are proxied to an instance chosen from the inventory service pool. The proxy
+    // handler is built once: it keeps the request path and only swaps in the instance's host.
+    @Bean
+    public RouterFunction<ServerResponse> inventoryRoutes(InventoryResponseCache inventoryResponseCache,
+                                                          RateLimitFilters rateLimitFilters,
+                                                          UpstreamPool inventoryServicePool) {
+        final RouterFunction<ServerResponse> cachedReads = GatewayRouterFunctions.route("inventory-service-cache")
+                .GET("/api/v1/inventory/venue/{venueId}", inventoryResponseCache)
+                .GET("/api/v1/inventory/event/{eventId}", inventoryResponseCache)
+                .build();
+        final RouterFunction<ServerResponse> proxied = GatewayRouterFunctions.route("inventory-service")
+                .route(RequestPredicates.path("/api/v1/inventory/venue/{venueId}")
+                        .or(RequestPredicates.path("/api/v1/inventory/event/{eventId}")), HandlerFunctions.http())
+                .filter(balance(inventoryServicePool))
+                .build();
+        return cachedReads.and(proxied)
+                .filter(rateLimitFilters.perSubject("inventory-service", RateLimit.of(inventoryPermitsPerSecond, inventoryBurst)));
     }
 
     @Bean
-    public RouterFunction<ServerResponse> inventoryServiceApiDocs() {
+    public RouterFunction<ServerResponse> inventoryServiceApiDocs(UpstreamPool inventoryServicePool) {
         return GatewayRouterFunctions.route("inventory-service-api-docs")
-                .route(RequestPredicates.path("/docs/inventoryservice/v3/api-docs"),
-                        HandlerFunctions.http("http://localhost:8080"))
+                .route(RequestPredicates.path("/docs/inventoryservice/v3/api-docs"), HandlerFunctions.http())
                 .filter(setPath("/v3/api-docs"))
+                .filter(balance(inventoryServicePool))
                 .build();
     }
 }
@@ -0,0 +1,42 @@
+package com.yan.apigateway.route;
+
+import com.yan.upstream.UpstreamInstance;
+import com.yan.upstream.UpstreamPool;
+import org.springframework.cloud.gateway.server.mvc.common.MvcUtils;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.net.URI;
+import java.util.function.Function;
+
+public final class UpstreamFilterFunctions {
+
+    private UpstreamFilterFunctions() {
+    }
+
+    // Picks an instance from the pool as the request URL for HandlerFunctions.http() and feeds the
+    // response time back into the pool; 5xx answers and exceptions count against the instance
+    public static HandlerFilterFunction<ServerResponse, ServerResponse> balance(final UpstreamPool pool) {
+        return balance(pool, request -> null);
+    }
+
+    // Like balance(pool), but sends the request to the instance the affinity names while that one is
+    // available, for requests that refer to state only that instance has
+    public static HandlerFilterFunction<ServerResponse, ServerResponse> balance(final UpstreamPool pool,
+                                                                                final Function<ServerRequest, URI> affinity) {
+        return (request, next) -> {
+            final UpstreamInstance instance = pool.choosePreferring(affinity.apply(request));
+            MvcUtils.setRequestUrl(request, instance.uri());
+            final long started = instance.begin();
+            try {
+                final ServerResponse response = next.handle(request);
+                instance.end(started, !response.statusCode().is5xxServerError());
+                return response;
+            } catch (Exception e) {
+                instance.end(started, false);
+                throw e;
+            }
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.yan.apigateway.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachingJwtDecoderTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final AtomicInteger decodes = new AtomicInteger();
+    private final AtomicLong tickerNanos = new AtomicLong();
+
+    @Test
+    void verifiesEachTokenOnce() {
+        final CachingJwtDecoder decoder = decoder(token -> jwt(token, NOW.plusSeconds(300)), Duration.ofMinutes(5));
+
+        final Jwt first = decoder.decode("token-a");
+
+        assertSame(first, decoder.decode("token-a"));
+        assertEquals(1, decodes.get());
+        decoder.decode("token-b");
+        assertEquals(2, decodes.get());
+    }
+
+    @Test
+    void expiresAtTheEarlierOfExpAndMaxTtl() {
+        final CachingJwtDecoder decoder = decoder(token -> jwt(token, NOW.plusSeconds(30)), Duration.ofMinutes(5));
+
+        decoder.decode("token");
+        tickerNanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        decoder.decode("token");
+
+        assertEquals(2, decodes.get());
+    }
+
+    @Test
+    void expiresAfterMaxTtlForLongLivedTokens() {
+        final CachingJwtDecoder decoder = decoder(token -> jwt(token, NOW.plusSeconds(3600)), Duration.ofSeconds(60));
+
+        decoder.decode("token");
+        tickerNanos.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        decoder.decode("token");
+        assertEquals(1, decodes.get());
+        tickerNanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        decoder.decode("token");
+        assertEquals(2, decodes.get());
+    }
+
+    @Test
+    void doesNotCacheRejectedTokens() {
+        final CachingJwtDecoder decoder = decoder(token -> {
+            throw new BadJwtException("bad signature");
+        }, Duration.ofMinutes(5));
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("token"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("token"));
+        assertEquals(2, decodes.get());
+    }
+
+    private CachingJwtDecoder decoder(final JwtDecoder delegate, final Duration maxTtl) {
+        final JwtDecoder counting = token -> {
+            decodes.incrementAndGet();
+            return delegate.decode(token);
+        };
+        return new CachingJwtDecoder(counting, 1000, maxTtl, Clock.fixed(NOW, ZoneOffset.UTC), tickerNanos::get);
+    }
+
+    private static Jwt jwt(final String token, final Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("user")
+                .issuedAt(NOW)
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
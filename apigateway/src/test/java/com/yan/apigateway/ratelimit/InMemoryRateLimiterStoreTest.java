@@ -0,0 +1,60 @@
+package com.yan.apigateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryRateLimiterStoreTest {
+    private static final RateLimit TEN_PER_SECOND_BURST_FIVE = RateLimit.of(10, 5);
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+    private final InMemoryRateLimiterStore store = new InMemoryRateLimiterStore(nanos::get);
+
+    @Test
+    void admitsBurstThenRejects() {
+        for(int i = 0; i < 5; i++){
+            assertEquals(0, store.acquire("route", "alice", TEN_PER_SECOND_BURST_FIVE));
+        }
+
+        final long wait = store.acquire("route", "alice", TEN_PER_SECOND_BURST_FIVE);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait);
+    }
+
+    @Test
+    void refillsAtTheConfiguredRate() {
+        for(int i = 0; i < 5; i++){
+            store.acquire("route", "alice", TEN_PER_SECOND_BURST_FIVE);
+        }
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertEquals(0, store.acquire("route", "alice", TEN_PER_SECOND_BURST_FIVE));
+        assertTrue(store.acquire("route", "alice", TEN_PER_SECOND_BURST_FIVE) > 0);
+    }
+
+    @Test
+    void keepsSeparateBucketsPerSubjectAndRoute() {
+        for(int i = 0; i < 5; i++){
+            store.acquire("route", "alice", TEN_PER_SECOND_BURST_FIVE);
+        }
+
+        assertEquals(0, store.acquire("route", "bob", TEN_PER_SECOND_BURST_FIVE));
+        assertEquals(0, store.acquire("other-route", "alice", TEN_PER_SECOND_BURST_FIVE));
+    }
+
+    @Test
+    void evictsOnlyFullBuckets() {
+        store.acquire("route", "alice", TEN_PER_SECOND_BURST_FIVE);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        store.acquire("route", "bob", TEN_PER_SECOND_BURST_FIVE);
+
+        store.evictIdle();
+
+        assertEquals(1, store.size());
+    }
+}
@@ -0,0 +1,72 @@
+package com.yan.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RateLimitFiltersTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private String lastSubject;
+    private long waitNanos;
+
+    // Stands in for a shared store: records the bucket key and answers with a fixed wait
+    private final RateLimiterStore fakeStore = (route, subject, limit) -> {
+        lastSubject = route + "/" + subject;
+        return waitNanos;
+    };
+
+    private final HandlerFilterFunction<ServerResponse, ServerResponse> filter =
+            new RateLimitFilters(fakeStore, meterRegistry).perSubject("booking-service", RateLimit.of(5, 10));
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void passesAdmittedRequestsThrough() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("alice", null, "ROLE_USER"));
+
+        final ServerResponse response = filter.filter(request(), request -> ServerResponse.ok().build());
+
+        assertEquals(HttpStatus.OK, response.statusCode());
+        assertEquals("booking-service/alice", lastSubject);
+    }
+
+    @Test
+    void rejectsWithRetryAfterRoundedUpToSeconds() throws Exception {
+        waitNanos = TimeUnit.MILLISECONDS.toNanos(1200);
+
+        final ServerResponse response = filter.filter(request(), request -> ServerResponse.ok().build());
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.statusCode());
+        assertEquals("2", response.headers().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, meterRegistry.get("gateway.ratelimit.rejected").tag("route", "booking-service").counter().count());
+    }
+
+    @Test
+    void fallsBackToClientAddressWithoutAuthentication() throws Exception {
+        filter.filter(request(), request -> ServerResponse.ok().build());
+
+        assertEquals("booking-service/10.0.0.7", lastSubject);
+    }
+
+    private static ServerRequest request() {
+        final MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/api/v1/booking");
+        servletRequest.setRemoteAddr("10.0.0.7");
+        return ServerRequest.create(servletRequest, List.of());
+    }
+}
@@ -0,0 +1,40 @@
+package com.yan.apigateway.route;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.function.ServerRequest;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BookingServiceRoutesTest {
+
+    @Test
+    void queueTokenNamesTheInstanceThatIssuedIt() {
+        final String issuer = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("http://booking-2:8081/".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(URI.create("http://booking-2:8081"),
+                BookingServiceRoutes.queueTokenIssuer(request(issuer + ".1:alice:3:1700000000000.c2ln")));
+    }
+
+    @Test
+    void requestsWithoutAReadableQueueTokenHaveNoIssuer() {
+        assertNull(BookingServiceRoutes.queueTokenIssuer(request(null)));
+        assertNull(BookingServiceRoutes.queueTokenIssuer(request("no-dot")));
+        assertNull(BookingServiceRoutes.queueTokenIssuer(request("!!!.1:alice:3:1700000000000.c2ln")));
+    }
+
+    private static ServerRequest request(final String queueToken) {
+        final MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/api/v1/booking");
+        if(queueToken != null){
+            servletRequest.addHeader(BookingServiceRoutes.QUEUE_TOKEN_HEADER, queueToken);
+        }
+        return ServerRequest.create(servletRequest, List.of());
+    }
+}
@@ -0,0 +1,57 @@
+package com.yan.apigateway.route;
+
+import com.yan.upstream.UpstreamPool;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.server.mvc.common.MvcUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class UpstreamFilterFunctionsTest {
+    private static final URI A = URI.create("http://10.0.0.11:8080");
+    private static final URI B = URI.create("http://10.0.0.12:8080");
+
+    private final UpstreamPool pool = UpstreamPool.builder("inventory")
+            .urls(A + "," + B)
+            .failureThreshold(1)
+            .build();
+
+    @Test
+    void sharedProxyHandlerGetsTheInstanceAsRequestUrl() throws Exception {
+        final HandlerFilterFunction<ServerResponse, ServerResponse> balance = UpstreamFilterFunctions.balance(pool, request -> B);
+
+        final ServerRequest request = request();
+        balance.filter(request, next -> ServerResponse.ok().build());
+
+        // Only the host is swapped in; the proxy keeps the request's own path and query
+        assertEquals(B, MvcUtils.getAttribute(request, MvcUtils.GATEWAY_REQUEST_URL_ATTR));
+        assertEquals("/api/v1/inventory/event/42", request.servletRequest().getRequestURI());
+        assertEquals(0, pool.instances().get(1).outstanding());
+    }
+
+    @Test
+    void serverErrorsCountAgainstTheInstance() throws Exception {
+        final HandlerFilterFunction<ServerResponse, ServerResponse> balance = UpstreamFilterFunctions.balance(pool, request -> B);
+
+        balance.filter(request(), next -> ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+
+        assertFalse(pool.instances().get(1).isAvailable());
+        final ServerRequest retry = request();
+        balance.filter(retry, next -> ServerResponse.ok().build());
+        assertEquals(A, MvcUtils.getAttribute(retry, MvcUtils.GATEWAY_REQUEST_URL_ATTR));
+    }
+
+    private static ServerRequest request() {
+        final MockHttpServletRequest servletRequest = new MockHttpServletRequest("PUT", "/api/v1/inventory/event/42");
+        servletRequest.setQueryString("fields=capacity");
+        return ServerRequest.create(servletRequest, List.of());
+    }
+}
@@ -0,0 +1,69 @@
+package com.yan.bookingservice.client;
+
+import com.yan.bookingservice.config.HttpClientConfig;
+import com.yan.bookingservice.response.InventoryResponse;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Latency of one inventory lookup against a local stub server: a new RestTemplate per call, as the
+// client did before, against the shared pooled RestTemplate from HttpClientConfig with its default
+// settings. Throughput follows from running with -t, e.g. -t 16.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryClientPoolingBenchmark {
+    private StubInventoryServer server;
+    private String eventUrl;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private RestTemplate pooled;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubInventoryServer(0);
+        eventUrl = server.eventUrl();
+        final HttpClientConfig config = new HttpClientConfig();
+        ReflectionTestUtils.setField(config, "maxConnections", 200);
+        ReflectionTestUtils.setField(config, "maxConnectionsPerRoute", 100);
+        ReflectionTestUtils.setField(config, "connectTimeoutMillis", 1000L);
+        ReflectionTestUtils.setField(config, "readTimeoutMillis", 3000L);
+        ReflectionTestUtils.setField(config, "poolAcquireTimeoutMillis", 500L);
+        ReflectionTestUtils.setField(config, "keepAliveSeconds", 30L);
+        connectionManager = config.inventoryConnectionManager();
+        pooled = config.inventoryRestTemplate(new RestTemplateBuilder(), connectionManager);
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionManager.close();
+        server.close();
+    }
+
+    @Benchmark
+    public InventoryResponse newRestTemplatePerCall() {
+        return new RestTemplate().getForObject(eventUrl, InventoryResponse.class);
+    }
+
+    @Benchmark
+    public InventoryResponse pooledRestTemplate() {
+        return pooled.getForObject(eventUrl, InventoryResponse.class);
+    }
+}
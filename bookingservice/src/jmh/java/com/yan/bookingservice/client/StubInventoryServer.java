@@ -0,0 +1,53 @@
+package com.yan.bookingservice.client;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Local stand-in for the inventory service: answers every event lookup with the same small JSON body
+// after a fixed delay, each request on its own virtual thread so the stub is never the bottleneck
+class StubInventoryServer implements AutoCloseable {
+    private static final byte[] BODY = ("{\"eventId\":42,\"event\":\"Concert\",\"capacity\":5000," +
+            "\"venue\":{\"id\":1,\"name\":\"Arena\"},\"ticketPrice\":49.99}").getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    StubInventoryServer(final long delayMillis) throws IOException {
+        // Headers and body go out as separate writes; without TCP_NODELAY each response waits for a delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        // Keeps every pooled client connection open; by default it closes idle ones beyond 200
+        System.setProperty("sun.net.httpserver.maxIdleConnections", "10000");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext("/api/v1/inventory/event/", exchange -> {
+            try (exchange; OutputStream body = exchange.getResponseBody()) {
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, BODY.length);
+                body.write(BODY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String eventUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/api/v1/inventory/event/42";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+}
@@ -0,0 +1,104 @@
+package com.yan.bookingservice.client;
+
+import com.yan.bookingservice.config.HttpClientConfig;
+import com.yan.bookingservice.response.InventoryResponse;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Load test of the blocking request path: a burst of concurrent requests, each waiting on an inventory
+// call that takes 20 ms, served by a pool of 200 platform threads (Tomcat's default maximum) or by one
+// virtual thread per request, the mode spring.threads.virtual.enabled switches on. The score is the
+// time to complete the burst. The HTTP pool is sized for the burst here; in the service the connection
+// pools (inventory.client.http.max-connections, Hikari) bound concurrency instead of the thread pool.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class VirtualThreadConcurrencyBenchmark {
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final long INVENTORY_LATENCY_MILLIS = 20;
+
+    @Param({"200", "1000", "2000"})
+    public int concurrentRequests;
+
+    private StubInventoryServer server;
+    private String eventUrl;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private RestTemplate inventory;
+    private ExecutorService platformThreads;
+    private ExecutorService virtualThreads;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubInventoryServer(INVENTORY_LATENCY_MILLIS);
+        eventUrl = server.eventUrl();
+        final HttpClientConfig config = new HttpClientConfig();
+        ReflectionTestUtils.setField(config, "maxConnections", concurrentRequests);
+        ReflectionTestUtils.setField(config, "maxConnectionsPerRoute", concurrentRequests);
+        ReflectionTestUtils.setField(config, "connectTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(config, "readTimeoutMillis", 30000L);
+        ReflectionTestUtils.setField(config, "poolAcquireTimeoutMillis", 30000L);
+        ReflectionTestUtils.setField(config, "keepAliveSeconds", 30L);
+        connectionManager = config.inventoryConnectionManager();
+        inventory = config.inventoryRestTemplate(new RestTemplateBuilder(), connectionManager);
+        platformThreads = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        platformThreads.close();
+        virtualThreads.close();
+        connectionManager.close();
+        server.close();
+    }
+
+    @Benchmark
+    public int platformThreadPool() throws InterruptedException, ExecutionException {
+        return burst(platformThreads);
+    }
+
+    @Benchmark
+    public int virtualThreadPerRequest() throws InterruptedException, ExecutionException {
+        return burst(virtualThreads);
+    }
+
+    private int burst(final ExecutorService executor) throws InterruptedException, ExecutionException {
+        final List<Future<InventoryResponse>> requests = new ArrayList<>(concurrentRequests);
+        for (int i = 0; i < concurrentRequests; i++) {
+            requests.add(executor.submit(() -> inventory.getForObject(eventUrl, InventoryResponse.class)));
+        }
+        int completed = 0;
+        for (Future<InventoryResponse> request : requests) {
+            if (request.get() != null) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+}
@@ -0,0 +1,71 @@
+package com.yan.bookingservice.admission;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Concurrency limit that follows what the downstream systems can absorb (AIMD): every request
+// finishing under the target latency while the limit is in use raises it by 1/limit, about +1 per
+// round of requests, and a slower one cuts it by the backoff ratio. After a cut, the requests that
+// were already running finish before the next cut, so one slow round only counts once.
+public class AdaptiveConcurrencyLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long completions;
+    private long nextDecreaseAt;
+
+    public AdaptiveConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit,
+                                      final Duration targetLatency, final double backoffRatio) {
+        if (minLimit <= 0 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 0 < min <= max");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public void release(final long latencyNanos) {
+        final int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            completions++;
+            if (latencyNanos > targetLatencyNanos) {
+                if (completions >= nextDecreaseAt) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    // The other requests in flight were admitted under the old limit; their latency says
+                    // nothing about the new one
+                    nextDecreaseAt = completions + current;
+                }
+            } else if (current * 2 >= (int) limit) {
+                // Only grow while at least half the limit is used, or an idle service would inflate it forever
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
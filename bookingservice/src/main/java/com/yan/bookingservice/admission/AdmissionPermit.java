@@ -0,0 +1,24 @@
+package com.yan.bookingservice.admission;
+
+// Held for the duration of one admitted booking; closing it reports the latency to the limiter
+public class AdmissionPermit implements AutoCloseable {
+    private static final AdmissionPermit UNLIMITED = new AdmissionPermit(null);
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final long startNanos = System.nanoTime();
+
+    public AdmissionPermit(final AdaptiveConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    public static AdmissionPermit unlimited() {
+        return UNLIMITED;
+    }
+
+    @Override
+    public void close() {
+        if (limiter != null) {
+            limiter.release(System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.yan.bookingservice.admission;
+
+import lombok.Getter;
+
+// The booking was not admitted yet; the client should retry with the queue token after retryAfterSeconds
+@Getter
+public class AdmissionQueuedException extends RuntimeException {
+    private final String queueToken;
+    private final long position;
+    private final long retryAfterSeconds;
+
+    public AdmissionQueuedException(final String queueToken, final long position, final long retryAfterSeconds) {
+        super("Booking queued at position " + position);
+        this.queueToken = queueToken;
+        this.position = position;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,73 @@
+package com.yan.bookingservice.admission;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// FIFO queue of one event as two counters: positions handed out, and positions allowed in.
+// Waiting clients hold a position instead of a connection and come back once it is admitted.
+public class EventWaitingRoom {
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong admitted = new AtomicLong();
+    // Admitted positions that already got in, with the issue time of their token
+    private final Map<Long, Long> consumed = new ConcurrentHashMap<>();
+    private volatile long lastIssuedAtMillis;
+    private double drainCarry;
+
+    public long enqueue(final long nowMillis) {
+        lastIssuedAtMillis = nowMillis;
+        return issued.incrementAndGet();
+    }
+
+    public boolean isEmpty() {
+        return admitted.get() >= issued.get();
+    }
+
+    public long queueLength() {
+        return Math.max(0, issued.get() - admitted.get());
+    }
+
+    public boolean hasIssued(final long position) {
+        return position <= issued.get();
+    }
+
+    public boolean isAdmitted(final long position) {
+        return position <= admitted.get();
+    }
+
+    // Each position gets in once; false if it already did
+    public boolean consume(final long position, final long issuedAtMillis) {
+        return consumed.putIfAbsent(position, issuedAtMillis) == null;
+    }
+
+    // Gives the position back when it could not be let in after all
+    public void restore(final long position) {
+        consumed.remove(position);
+    }
+
+    // Tokens issued before this are expired, so their positions need not be remembered
+    public void forgetConsumedIssuedBefore(final long millis) {
+        consumed.values().removeIf(issuedAt -> issuedAt < millis);
+    }
+
+    // 1 means next in line
+    public long positionInQueue(final long position) {
+        return Math.max(1, position - admitted.get());
+    }
+
+    // Called from a single scheduler thread; fractional drains carry over to the next call
+    public void drain(final double positions) {
+        drainCarry += positions;
+        final long whole = (long) drainCarry;
+        if (whole == 0) {
+            return;
+        }
+        drainCarry -= whole;
+        final long limit = issued.get();
+        admitted.getAndUpdate(current -> Math.min(limit, current + whole));
+    }
+
+    public long getLastIssuedAtMillis() {
+        return lastIssuedAtMillis;
+    }
+}
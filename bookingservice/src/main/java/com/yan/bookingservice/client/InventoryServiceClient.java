@@ -1,17 +1,200 @@
 package com.yan.bookingservice.client;
 
+import com.yan.bookingservice.request.SeatHoldRequest;
 import com.yan.bookingservice.response.InventoryResponse;
+import com.yan.bookingservice.response.SeatHoldResponse;
+import com.yan.upstream.HedgedExecutor;
+import com.yan.upstream.UpstreamPool;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
 @Service
 public class InventoryServiceClient {
-    @Value("${inventory.service.url}")
-    private String inventoryServiceUrl;
+    private static final String INVENTORY_PATH = "/api/v1/inventory";
+    // 4xx answers are about the request, not the instance, so they do not count against it
+    private static final Predicate<RuntimeException> INSTANCE_FAILURE = e -> !(e instanceof HttpClientErrorException);
+
+
+    @Value("${inventory.client.batch-window-ms:2}")
+    private long batchWindowMillis;
+
+    @Value("${inventory.client.max-batch-size:100}")
+    private int maxBatchSize;
+
+    // Single-event lookups arriving within the batch window are coalesced into one bulk request
+    private final ReentrantLock batchLock = new ReentrantLock();
+    private Map<Long, CompletableFuture<InventoryResponse>> pendingLookups = new HashMap<>();
+    private final ScheduledExecutorService batchScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("inventory-batcher").daemon().factory());
+    private final ExecutorService lookupExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final RestTemplate restTemplate;
+    private final UpstreamPool inventoryServicePool;
+    private final HedgedExecutor inventoryReadExecutor;
+
+    @Autowired
+    public InventoryServiceClient(final RestTemplate restTemplate, final UpstreamPool inventoryServicePool,
+                                  final HedgedExecutor inventoryReadExecutor) {
+        this.restTemplate = restTemplate;
+        this.inventoryServicePool = inventoryServicePool;
+        this.inventoryReadExecutor = inventoryReadExecutor;
+    }
 
     public InventoryResponse getInventory(final Long eventId){
-        final RestTemplate restTemplate = new RestTemplate();
-        return restTemplate.getForObject(inventoryServiceUrl + "/event/" + eventId, InventoryResponse.class);
+        return await(getInventoryAsync(eventId));
+    }
+
+    public CompletableFuture<InventoryResponse> getInventoryAsync(final Long eventId){
+        final CompletableFuture<InventoryResponse> lookup;
+        Map<Long, CompletableFuture<InventoryResponse>> fullBatch = null;
+        batchLock.lock();
+        try {
+            final CompletableFuture<InventoryResponse> pending = pendingLookups.get(eventId);
+            if (pending != null) {
+                return pending;
+            }
+            lookup = new CompletableFuture<>();
+            pendingLookups.put(eventId, lookup);
+            if (pendingLookups.size() >= maxBatchSize) {
+                fullBatch = takePendingLookups();
+            } else if (pendingLookups.size() == 1) {
+                batchScheduler.schedule(this::flushPendingLookups, batchWindowMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            batchLock.unlock();
+        }
+        if (fullBatch != null) {
+            final Map<Long, CompletableFuture<InventoryResponse>> batch = fullBatch;
+            lookupExecutor.execute(() -> lookupBatch(batch));
+        }
+        return lookup;
+    }
+
+    public List<InventoryResponse> getInventories(final Collection<Long> eventIds){
+        final String ids = eventIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        // A read, so it may be hedged to a second instance and is cut off at the adaptive timeout. Attempts
+        // that lose or time out are interrupted, which aborts the socket read and drops their pooled connection
+        final InventoryResponse[] responses = await(inventoryReadExecutor.execute(
+                instance -> restTemplate.getForObject(instance + INVENTORY_PATH + "/events/batch?ids={ids}",
+                        InventoryResponse[].class, ids),
+                INSTANCE_FAILURE));
+        return responses == null ? List.of() : Arrays.asList(responses);
+    }
+
+    // Returns null when inventory could not hold the tickets
+    public SeatHoldResponse holdSeats(final Long eventId, final Long ticketCount){
+        try {
+            return call(inventoryUrl -> restTemplate.postForObject(
+                    inventoryUrl + "/event/{eventId}/hold/{ticketCount}", null, SeatHoldResponse.class,
+                    eventId, ticketCount));
+        } catch (HttpClientErrorException.Conflict e) {
+            return null;
+        }
+    }
+
+    // Holds seats for several events all or nothing; returns null when any of them could not be held
+    public List<SeatHoldResponse> holdSeats(final List<SeatHoldRequest> requests){
+        try {
+            final SeatHoldResponse[] holds = call(inventoryUrl -> restTemplate.postForObject(
+                    inventoryUrl + "/holds", requests, SeatHoldResponse[].class));
+            return holds == null ? List.of() : Arrays.asList(holds);
+        } catch (HttpClientErrorException.Conflict e) {
+            return null;
+        }
+    }
+
+    // Gives held tickets back early instead of waiting for the hold to expire
+    public void releaseHold(final String holdId){
+        try {
+            call(inventoryUrl -> {
+                restTemplate.delete(inventoryUrl + "/hold/{holdId}", holdId);
+                return null;
+            });
+        } catch (HttpClientErrorException.NotFound e) {
+            // Already confirmed, released or expired
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchScheduler.shutdown();
+        lookupExecutor.shutdown();
+    }
+
+    // Sends the request to an inventory instance chosen by the pool. Holds are stored in the shared
+    // database, so a hold made on one instance can be released or confirmed on any other. Requests use
+    // URI templates so the http.client.requests timings are tagged by endpoint rather than by every id
+    private <T> T call(final Function<String, T> request) {
+        return inventoryServicePool.execute(instance -> request.apply(instance + INVENTORY_PATH), INSTANCE_FAILURE);
+    }
+
+    private static <T> T await(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof TimeoutException) {
+                throw new RuntimeException("Inventory service did not answer in time", e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    private void flushPendingLookups() {
+        final Map<Long, CompletableFuture<InventoryResponse>> batch;
+        batchLock.lock();
+        try {
+            batch = takePendingLookups();
+        } finally {
+            batchLock.unlock();
+        }
+        if (!batch.isEmpty()) {
+            lookupExecutor.execute(() -> lookupBatch(batch));
+        }
+    }
+
+    private Map<Long, CompletableFuture<InventoryResponse>> takePendingLookups() {
+        final Map<Long, CompletableFuture<InventoryResponse>> batch = pendingLookups;
+        pendingLookups = new HashMap<>();
+        return batch;
+    }
+
+    private void lookupBatch(final Map<Long, CompletableFuture<InventoryResponse>> batch) {
+        try {
+            final Map<Long, InventoryResponse> found = getInventories(batch.keySet()).stream()
+                    .collect(Collectors.toMap(InventoryResponse::getEventId, Function.identity()));
+            batch.forEach((eventId, lookup) -> {
+                final InventoryResponse response = found.get(eventId);
+                if (response == null) {
+                    lookup.completeExceptionally(new RuntimeException("Event not found"));
+                } else {
+                    lookup.complete(response);
+                }
+            });
+        } catch (RuntimeException e) {
+            batch.values().forEach(lookup -> lookup.completeExceptionally(e));
+        }
     }
 }
@@ -0,0 +1,91 @@
+package com.yan.bookingservice.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+// One shared, pooled HTTP client for calls to other services instead of a new RestTemplate per request
+@Configuration
+public class HttpClientConfig {
+    @Value("${inventory.client.http.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${inventory.client.http.max-connections-per-route:100}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${inventory.client.http.connect-timeout-ms:1000}")
+    private long connectTimeoutMillis;
+
+    @Value("${inventory.client.http.read-timeout-ms:3000}")
+    private long readTimeoutMillis;
+
+    @Value("${inventory.client.http.pool-acquire-timeout-ms:500}")
+    private long poolAcquireTimeoutMillis;
+
+    @Value("${inventory.client.http.keep-alive-seconds:30}")
+    private long keepAliveSeconds;
+
+    @Value("${inventory.client.http.http2-enabled:false}")
+    private boolean http2Enabled;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager inventoryConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
+    @Bean
+    public RestTemplate inventoryRestTemplate(final RestTemplateBuilder restTemplateBuilder,
+                                              final PoolingHttpClientConnectionManager inventoryConnectionManager) {
+        if (http2Enabled) {
+            // The JDK client multiplexes requests over HTTP/2 connections it manages itself
+            final HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                    .build();
+            final JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+            requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMillis));
+            return restTemplateBuilder.requestFactory(() -> requestFactory).build();
+        }
+        final CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(inventoryConnectionManager)
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofSeconds(keepAliveSeconds))
+                .evictIdleConnections(TimeValue.ofSeconds(keepAliveSeconds))
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolAcquireTimeoutMillis))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .build())
+                .build();
+        return restTemplateBuilder.requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient)).build();
+    }
+
+    // Publishes httpcomponents.httpclient.pool.* (leased, available, pending connections)
+    @Bean
+    public MeterBinder inventoryConnectionPoolMetrics(final PoolingHttpClientConnectionManager inventoryConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(inventoryConnectionManager, "inventory");
+    }
+}
@@ -0,0 +1,123 @@
+package com.yan.bookingservice.config;
+
+import com.yan.upstream.HedgedExecutor;
+import com.yan.upstream.UpstreamHealthChecker;
+import com.yan.upstream.UpstreamInstance;
+import com.yan.upstream.UpstreamPool;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Inventory service instances for InventoryServiceClient, balanced on peak EWMA latency and
+// outstanding requests and health-checked on their actuator endpoint
+@Configuration
+public class InventoryUpstreamConfig {
+    @Value("${inventory.service.urls}")
+    private String inventoryServiceUrls;
+
+    @Value("${inventory.client.upstream.ewma-decay:10s}")
+    private Duration ewmaDecay;
+
+    @Value("${inventory.client.upstream.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${inventory.client.upstream.ejection:5s}")
+    private Duration ejection;
+
+    @Value("${inventory.client.upstream.health.path:/actuator/health}")
+    private String healthPath;
+
+    @Value("${inventory.client.upstream.health.interval:2s}")
+    private Duration healthInterval;
+
+    @Value("${inventory.client.upstream.health.timeout:1s}")
+    private Duration healthTimeout;
+
+    @Value("${inventory.client.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${inventory.client.hedge.min-delay:5ms}")
+    private Duration minHedgeDelay;
+
+    @Value("${inventory.client.hedge.budget-ratio:0.1}")
+    private double hedgeBudgetRatio;
+
+    @Value("${inventory.client.hedge.budget-burst:10}")
+    private int hedgeBudgetBurst;
+
+    @Value("${inventory.client.timeout.percentile:0.99}")
+    private double timeoutPercentile;
+
+    @Value("${inventory.client.timeout.multiplier:3}")
+    private double timeoutMultiplier;
+
+    @Value("${inventory.client.timeout.min:200ms}")
+    private Duration minTimeout;
+
+    @Value("${inventory.client.timeout.max:3s}")
+    private Duration maxTimeout;
+
+    @Bean
+    public UpstreamPool inventoryServicePool(final MeterRegistry meterRegistry) {
+        final UpstreamPool pool = UpstreamPool.builder("inventoryservice")
+                .urls(inventoryServiceUrls)
+                .decay(ewmaDecay)
+                .failureThreshold(failureThreshold)
+                .ejection(ejection)
+                .build();
+        for(UpstreamInstance instance : pool.instances()){
+            Gauge.builder("booking.inventory.upstream.outstanding", instance, UpstreamInstance::outstanding)
+                    .tag("instance", instance.toString())
+                    .register(meterRegistry);
+            Gauge.builder("booking.inventory.upstream.latency.ewma", instance, i -> i.latencyNanos() / 1_000_000)
+                    .description("Peak EWMA response time in milliseconds")
+                    .tag("instance", instance.toString())
+                    .register(meterRegistry);
+            Gauge.builder("booking.inventory.upstream.available", instance, i -> i.isAvailable() ? 1 : 0)
+                    .tag("instance", instance.toString())
+                    .register(meterRegistry);
+        }
+        return pool;
+    }
+
+    @Bean(destroyMethod = "close")
+    public UpstreamHealthChecker inventoryServiceHealthChecker(final UpstreamPool inventoryServicePool) {
+        return new UpstreamHealthChecker(inventoryServicePool, healthPath, healthInterval, healthTimeout).start();
+    }
+
+    // Inventory reads are idempotent, so slow ones are hedged to a second instance
+    @Bean(destroyMethod = "close")
+    public HedgedExecutor inventoryReadExecutor(final UpstreamPool inventoryServicePool, final MeterRegistry meterRegistry) {
+        final HedgedExecutor executor = HedgedExecutor.builder(inventoryServicePool)
+                .hedgeAfter(hedgePercentile, minHedgeDelay)
+                .hedgeBudget(hedgeBudgetRatio, hedgeBudgetBurst)
+                .timeout(timeoutPercentile, timeoutMultiplier, minTimeout, maxTimeout)
+                .build();
+        FunctionCounter.builder("booking.inventory.hedge.requests", executor, HedgedExecutor::hedges)
+                .description("Hedged inventory reads sent to a second instance")
+                .tag("result", "sent")
+                .register(meterRegistry);
+        FunctionCounter.builder("booking.inventory.hedge.requests", executor, HedgedExecutor::hedgeWins)
+                .description("Hedged inventory reads answered first by the second instance")
+                .tag("result", "won")
+                .register(meterRegistry);
+        FunctionCounter.builder("booking.inventory.hedge.requests", executor, HedgedExecutor::budgetExhausted)
+                .description("Inventory reads that were not hedged because the hedge budget was used up")
+                .tag("result", "budget_exhausted")
+                .register(meterRegistry);
+        FunctionCounter.builder("booking.inventory.read.timeouts", executor, HedgedExecutor::timeouts)
+                .register(meterRegistry);
+        Gauge.builder("booking.inventory.hedge.delay", executor, e -> e.hedgeDelayNanos() / 1_000_000.0)
+                .description("Current hedge delay in milliseconds, -1 until enough reads were seen")
+                .register(meterRegistry);
+        Gauge.builder("booking.inventory.read.timeout", executor, e -> e.timeoutNanos() / 1_000_000.0)
+                .description("Current adaptive read timeout in milliseconds")
+                .register(meterRegistry);
+        return executor;
+    }
+}
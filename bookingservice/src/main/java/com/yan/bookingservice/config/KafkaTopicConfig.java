@@ -0,0 +1,22 @@
+package com.yan.bookingservice.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicConfig {
+    @Value("${booking.topic.partitions:6}")
+    private int bookingPartitions;
+
+    // Bookings are keyed by eventId, so partitions are the unit of parallelism for the order consumers
+    @Bean
+    public NewTopic bookingTopic() {
+        return TopicBuilder.name("booking")
+                .partitions(bookingPartitions)
+                .replicas(1)
+                .build();
+    }
+}
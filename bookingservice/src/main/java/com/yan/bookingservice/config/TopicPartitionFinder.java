@@ -0,0 +1,38 @@
+package com.yan.bookingservice.config;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Properties;
+
+// Partitions of a topic, for listeners that assign themselves all of them instead of joining a consumer group:
+// @KafkaListener(topicPartitions = @TopicPartition(topic = "t", partitions = "#{@topicPartitionFinder.partitions('t')}"))
+@Component
+public class TopicPartitionFinder {
+    private final ConsumerFactory<?, ?> consumerFactory;
+
+    @Autowired
+    public TopicPartitionFinder(final ConsumerFactory<?, ?> consumerFactory) {
+        this.consumerFactory = consumerFactory;
+    }
+
+    public String[] partitions(final String topic) {
+        // Asking for a topic that is not there must not create it with the broker's defaults
+        final Properties properties = new Properties();
+        properties.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false);
+        try (Consumer<?, ?> consumer = consumerFactory.createConsumer(null, null, "-partitions", properties)) {
+            final List<PartitionInfo> partitions = consumer.partitionsFor(topic);
+            if(partitions == null || partitions.isEmpty()){
+                throw new IllegalStateException("Topic " + topic + " does not exist");
+            }
+            return partitions.stream()
+                    .map(partition -> String.valueOf(partition.partition()))
+                    .toArray(String[]::new);
+        }
+    }
+}
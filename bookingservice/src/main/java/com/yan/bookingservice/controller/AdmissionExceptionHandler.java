@@ -0,0 +1,27 @@
+package com.yan.bookingservice.controller;
+
+import com.yan.bookingservice.admission.AdmissionQueuedException;
+import com.yan.bookingservice.response.QueueResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class AdmissionExceptionHandler {
+    public static final String QUEUE_TOKEN_HEADER = "X-Queue-Token";
+
+    // 429 with the queue position; the client retries after Retry-After, sending the token back
+    @ExceptionHandler(AdmissionQueuedException.class)
+    public ResponseEntity<QueueResponse> queued(final AdmissionQueuedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .header(QUEUE_TOKEN_HEADER, e.getQueueToken())
+                .body(QueueResponse.builder()
+                        .queueToken(e.getQueueToken())
+                        .position(e.getPosition())
+                        .retryAfterSeconds(e.getRetryAfterSeconds())
+                        .build());
+    }
+}
@@ -1,27 +1,82 @@
 package com.yan.bookingservice.controller;
 
+import com.yan.bookingservice.admission.AdmissionPermit;
+import com.yan.bookingservice.request.BatchBookingRequest;
 import com.yan.bookingservice.request.BookingRequest;
+import com.yan.bookingservice.response.BatchBookingResponse;
 import com.yan.bookingservice.response.BookingResponse;
+import com.yan.bookingservice.service.AdmissionControlService;
+import com.yan.bookingservice.service.BookingIdempotencyService;
 import com.yan.bookingservice.service.BookingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @RestController
 @RequestMapping("/api/v1")
 public class BookingController {
 
     private final BookingService bookingService;
+    private final BookingIdempotencyService bookingIdempotencyService;
+    private final AdmissionControlService admissionControlService;
 
     @Autowired
-    public BookingController(BookingService bookingService){
+    public BookingController(BookingService bookingService,
+                             BookingIdempotencyService bookingIdempotencyService,
+                             AdmissionControlService admissionControlService){
         this.bookingService = bookingService;
+        this.bookingIdempotencyService = bookingIdempotencyService;
+        this.admissionControlService = admissionControlService;
     }
 
+    // Retries that send the same Idempotency-Key get the first booking's response instead of a second booking,
+    // without waiting for admission. Under load a new booking is queued instead (429, see AdmissionExceptionHandler)
+    // and retried with the queue token.
     @PostMapping(consumes = "application/json", produces = "application/json", path = "/booking")
-    public BookingResponse createBooking(@RequestBody BookingRequest request){
-        return bookingService.createBooking(request);
+    public BookingResponse createBooking(@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                                         @RequestHeader(name = AdmissionExceptionHandler.QUEUE_TOKEN_HEADER, required = false) String queueToken,
+                                         @RequestBody BookingRequest request){
+        if(idempotencyKey != null){
+            return bookingIdempotencyService.createBooking(idempotencyKey, request,
+                    () -> admissionControlService.admit(request.getEventId(), request.getUserId(), queueToken));
+        }
+        try (AdmissionPermit permit = admissionControlService.admit(request.getEventId(), request.getUserId(), queueToken)) {
+            return bookingService.createBooking(request);
+        }
+    }
+
+    // A cart of up to booking.batch.max-items bookings for one customer, booked all or nothing. Idempotency
+    // and admission work as for a single booking; a cart queues behind the busiest of its events.
+    @PostMapping(consumes = "application/json", produces = "application/json", path = "/booking/batch")
+    public BatchBookingResponse createBookings(@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                                               @RequestHeader(name = AdmissionExceptionHandler.QUEUE_TOKEN_HEADER, required = false) String queueToken,
+                                               @RequestBody BatchBookingRequest request){
+        if(idempotencyKey != null){
+            return bookingIdempotencyService.createBookings(idempotencyKey, request,
+                    () -> admissionControlService.admit(eventIds(request), request.getUserId(), queueToken));
+        }
+        try (AdmissionPermit permit = admissionControlService.admit(eventIds(request), request.getUserId(), queueToken)) {
+            return bookingService.createBookings(request);
+        }
+    }
+
+    // Items are validated by the booking itself; admission only needs the events they name
+    private static Set<Long> eventIds(final BatchBookingRequest request){
+        final Set<Long> eventIds = request.getItems() == null ? Set.of() : request.getItems().stream()
+                .map(item -> item == null ? null : item.getEventId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if(eventIds.isEmpty()){
+            throw new IllegalArgumentException("A batch booking needs at least one item with an event id");
+        }
+        return eventIds;
     }
 }
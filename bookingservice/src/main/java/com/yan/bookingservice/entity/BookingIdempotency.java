@@ -0,0 +1,67 @@
+package com.yan.bookingservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "booking_idempotency")
+@IdClass(BookingIdempotencyId.class)
+public class BookingIdempotency implements Persistable<BookingIdempotencyId> {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    @Id
+    @Column(name = "item")
+    private Integer item;
+
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "ticket_count")
+    private Long ticketCount;
+
+    @Column(name = "total_price")
+    private BigDecimal totalPrice;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false, nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Override
+    public BookingIdempotencyId getId() {
+        return new BookingIdempotencyId(userId, idempotencyKey, item);
+    }
+
+    // Always inserted, so a second booking with the same key fails on the primary key
+    // instead of being merged over the first one
+    @Override
+    @Transient
+    public boolean isNew() {
+        return true;
+    }
+}
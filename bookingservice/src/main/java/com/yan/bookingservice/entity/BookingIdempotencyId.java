@@ -0,0 +1,18 @@
+package com.yan.bookingservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+// Primary key of booking_idempotency: a key is only unique for the customer that sent it, and a batch
+// booking has one row per item under its key
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingIdempotencyId implements Serializable {
+    private Long userId;
+    private String idempotencyKey;
+    private Integer item;
+}
@@ -0,0 +1,29 @@
+package com.yan.bookingservice.repository;
+
+import com.yan.bookingservice.entity.BookingIdempotency;
+import com.yan.bookingservice.entity.BookingIdempotencyId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BookingIdempotencyRepository extends JpaRepository<BookingIdempotency, BookingIdempotencyId> {
+
+    List<BookingIdempotency> findAllByUserIdAndIdempotencyKeyOrderByItem(Long userId, String idempotencyKey);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM BookingIdempotency b WHERE b.userId = :userId AND b.idempotencyKey = :key AND b.expiresAt <= :now")
+    int deleteExpired(@Param("userId") Long userId, @Param("key") String key, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM BookingIdempotency b WHERE b.expiresAt <= :now")
+    int deleteAllExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,22 @@
+package com.yan.bookingservice.repository;
+
+import com.yan.bookingservice.entity.BookingOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BookingOutboxRepository extends JpaRepository<BookingOutbox, Long> {
+
+    // SKIP LOCKED lets several relay instances drain the outbox without waiting on each other's rows
+    @Query(value = "SELECT * FROM booking_outbox ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<BookingOutbox> lockNextBatch(@Param("limit") int limit);
+
+    @Query("SELECT MIN(o.createdAt) FROM BookingOutbox o")
+    Optional<LocalDateTime> findOldestCreatedAt();
+}
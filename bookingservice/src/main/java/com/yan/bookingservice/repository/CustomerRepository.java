@@ -1,9 +1,18 @@
 package com.yan.bookingservice.repository;
 
 import com.yan.bookingservice.entity.Customer;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
+
+    // Keyset pagination over the ids only, for building the customer Bloom filter
+    @Query("SELECT c.id FROM Customer c WHERE c.id > :afterId AND c.id <= :upToId ORDER BY c.id")
+    List<Long> findIdsBetween(@Param("afterId") Long afterId, @Param("upToId") Long upToId, Limit limit);
 }
@@ -1,19 +1,15 @@
-package com.yan.bookingservice.event;
+package com.yan.bookingservice.request;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Data
-@NoArgsConstructor
 @AllArgsConstructor
+@NoArgsConstructor
 @Builder
-public class BookingEvent {
-    private Long userId;
+public class SeatHoldRequest {
     private Long eventId;
     private Long ticketCount;
-    private BigDecimal totalPrice;
 }
@@ -0,0 +1,27 @@
+package com.yan.bookingservice.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchBookingResponse {
+    private Long userId;
+    private List<BookingResponse> bookings;
+    private BigDecimal totalPrice;
+
+    public static BatchBookingResponse of(final Long userId, final List<BookingResponse> bookings) {
+        return BatchBookingResponse.builder()
+                .userId(userId)
+                .bookings(bookings)
+                .totalPrice(bookings.stream().map(BookingResponse::getTotalPrice).reduce(BigDecimal.ZERO, BigDecimal::add))
+                .build();
+    }
+}
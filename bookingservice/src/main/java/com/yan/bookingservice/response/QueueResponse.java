@@ -0,0 +1,16 @@
+package com.yan.bookingservice.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QueueResponse {
+    private String queueToken;
+    private Long position;
+    private Long retryAfterSeconds;
+}
@@ -0,0 +1,19 @@
+package com.yan.bookingservice.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SeatHoldResponse {
+    private String holdId;
+    private Long eventId;
+    private Long ticketCount;
+    private Instant expiresAt;
+}
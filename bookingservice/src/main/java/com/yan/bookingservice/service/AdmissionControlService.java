@@ -0,0 +1,206 @@
+package com.yan.bookingservice.service;
+
+import com.yan.bookingservice.admission.AdaptiveConcurrencyLimiter;
+import com.yan.bookingservice.admission.AdmissionPermit;
+import com.yan.bookingservice.admission.AdmissionQueuedException;
+import com.yan.bookingservice.admission.EventWaitingRoom;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Admission control in front of bookings. Requests go straight through while the event has nobody
+// waiting and the adaptive concurrency limit has room. Otherwise they get a signed queue token with
+// a position in the event's waiting room, which admits positions at a fixed drain rate; clients
+// retry with the token and are let in once their position comes up and the limit has room.
+// A token is bound to the customer it was issued to and lets them in once.
+// Waiting rooms live in the instance that issued the token, so a token names that instance (its URL as
+// the gateway knows it, before the first dot) and the gateway routes retries carrying it back there.
+// Other instances do not accept it.
+@Service
+@Slf4j
+public class AdmissionControlService {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final long DRAIN_TICK_MILLIS = 100;
+
+    private final boolean enabled;
+    private final double drainRatePerSecond;
+    private final long tokenTtlMillis;
+    private final byte[] tokenSecret;
+    private final String instance;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Map<Long, EventWaitingRoom> waitingRooms = new ConcurrentHashMap<>();
+    private final Counter admittedCounter;
+    private final Counter queuedCounter;
+
+    @Autowired
+    public AdmissionControlService(final MeterRegistry meterRegistry,
+                                   @Value("${booking.admission.enabled:true}") final boolean enabled,
+                                   @Value("${booking.admission.drain-rate-per-second:50}") final double drainRatePerSecond,
+                                   @Value("${booking.admission.token-ttl:10m}") final Duration tokenTtl,
+                                   @Value("${booking.admission.token-secret:}") final String tokenSecret,
+                                   @Value("${booking.admission.instance-url:http://localhost:${server.port:8081}}") final String instanceUrl,
+                                   @Value("${booking.admission.limit.initial:50}") final int initialLimit,
+                                   @Value("${booking.admission.limit.min:5}") final int minLimit,
+                                   @Value("${booking.admission.limit.max:500}") final int maxLimit,
+                                   @Value("${booking.admission.limit.target-latency:250ms}") final Duration targetLatency,
+                                   @Value("${booking.admission.limit.backoff-ratio:0.9}") final double backoffRatio) {
+        this.enabled = enabled;
+        this.drainRatePerSecond = drainRatePerSecond;
+        this.tokenTtlMillis = tokenTtl.toMillis();
+        this.tokenSecret = tokenSecret.isBlank() ? randomSecret() : tokenSecret.getBytes(StandardCharsets.UTF_8);
+        this.instance = Base64.getUrlEncoder().withoutPadding().encodeToString(instanceUrl.getBytes(StandardCharsets.UTF_8));
+        this.limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, targetLatency, backoffRatio);
+        this.admittedCounter = Counter.builder("booking.admission.admitted")
+                .description("Bookings let through admission control")
+                .register(meterRegistry);
+        this.queuedCounter = Counter.builder("booking.admission.queued")
+                .description("Bookings answered with a queue position")
+                .register(meterRegistry);
+        Gauge.builder("booking.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("booking.admission.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Admitted bookings in progress")
+                .register(meterRegistry);
+    }
+
+    public AdmissionPermit admit(final Long eventId, final Long userId, final String queueToken) {
+        return admit(List.of(eventId), userId, queueToken);
+    }
+
+    // A cart only goes straight through when none of its events has anybody waiting. Otherwise it
+    // waits in the room of the event with the longest queue, which its token then names.
+    public AdmissionPermit admit(final Collection<Long> eventIds, final Long userId, final String queueToken) {
+        if(!enabled){
+            return AdmissionPermit.unlimited();
+        }
+        final long now = System.currentTimeMillis();
+        QueueToken token = queueToken == null ? null : parse(queueToken, eventIds, userId, now);
+        final long eventId = token != null ? token.eventId() : busiest(eventIds);
+        final EventWaitingRoom room = waitingRooms.computeIfAbsent(eventId, id -> new EventWaitingRoom());
+        if(token != null && !room.hasIssued(token.position())){
+            // Issued by a waiting room that no longer exists, e.g. before a restart
+            token = null;
+        }
+        if(token == null){
+            if(room.isEmpty() && limiter.tryAcquire()){
+                admittedCounter.increment();
+                return new AdmissionPermit(limiter);
+            }
+        } else if(room.isAdmitted(token.position())){
+            if(!room.consume(token.position(), token.issuedAtMillis())){
+                // The token already got someone in; it does not keep its place
+                log.debug("Queue token for event id: {} was already used", eventId);
+                token = null;
+            } else if(limiter.tryAcquire()){
+                admittedCounter.increment();
+                return new AdmissionPermit(limiter);
+            } else {
+                room.restore(token.position());
+            }
+        }
+        // Not your turn yet, or the service is at its limit: keep the position, or take a new one
+        final QueueToken queued = token != null ? token : new QueueToken(eventId, String.valueOf(userId), room.enqueue(now), now);
+        final long positionInQueue = room.positionInQueue(queued.position());
+        queuedCounter.increment();
+        throw new AdmissionQueuedException(sign(queued), positionInQueue,
+                Math.max(1, (long) Math.ceil(positionInQueue / drainRatePerSecond)));
+    }
+
+    @Scheduled(fixedRate = DRAIN_TICK_MILLIS)
+    public void drainWaitingRooms() {
+        final double positions = drainRatePerSecond * DRAIN_TICK_MILLIS / 1000;
+        final long now = System.currentTimeMillis();
+        waitingRooms.forEach((eventId, room) -> {
+            room.drain(positions);
+            room.forgetConsumedIssuedBefore(now - tokenTtlMillis);
+            // Nobody waiting and every token it issued has expired
+            if(room.isEmpty() && now - room.getLastIssuedAtMillis() > tokenTtlMillis){
+                waitingRooms.remove(eventId, room);
+            }
+        });
+    }
+
+    private long busiest(final Collection<Long> eventIds) {
+        Long busiest = null;
+        long longestQueue = -1;
+        for(Long eventId : eventIds){
+            final EventWaitingRoom room = waitingRooms.get(eventId);
+            final long queueLength = room == null ? 0 : room.queueLength();
+            if(queueLength > longestQueue){
+                busiest = eventId;
+                longestQueue = queueLength;
+            }
+        }
+        return busiest;
+    }
+
+    private QueueToken parse(final String queueToken, final Collection<Long> eventIds, final Long userId, final long now) {
+        final int separator = queueToken.lastIndexOf('.');
+        if(separator > 0){
+            final String signed = queueToken.substring(0, separator);
+            final byte[] signature = queueToken.substring(separator + 1).getBytes(StandardCharsets.US_ASCII);
+            // Positions are only meaningful in the waiting room of the instance that issued them
+            if(signed.startsWith(instance + ".")
+                    && MessageDigest.isEqual(signature, hmac(signed).getBytes(StandardCharsets.US_ASCII))){
+                final String[] fields = signed.substring(instance.length() + 1).split(":");
+                if(fields.length == 4){
+                    try {
+                        final QueueToken token = new QueueToken(Long.parseLong(fields[0]), fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+                        if(eventIds.contains(token.eventId()) && token.userId().equals(String.valueOf(userId))
+                                && now - token.issuedAtMillis() <= tokenTtlMillis){
+                            return token;
+                        }
+                    } catch (NumberFormatException e) {
+                        // Falls through to a new position
+                    }
+                }
+            }
+        }
+        log.debug("Ignoring invalid or expired queue token for event ids: {}", eventIds);
+        return null;
+    }
+
+    private String sign(final QueueToken token) {
+        final String signed = instance + "." + token.eventId() + ":" + token.userId() + ":" + token.position() + ":" + token.issuedAtMillis();
+        return signed + "." + hmac(signed);
+    }
+
+    private String hmac(final String payload) {
+        try {
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(tokenSecret, HMAC_ALGORITHM));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign queue tokens", e);
+        }
+    }
+
+    private static byte[] randomSecret() {
+        log.warn("No booking.admission.token-secret configured, queue tokens stop being valid when this instance restarts");
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return secret;
+    }
+
+    private record QueueToken(long eventId, String userId, long position, long issuedAtMillis) {
+    }
+}
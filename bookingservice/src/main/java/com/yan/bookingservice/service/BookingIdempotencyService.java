@@ -0,0 +1,203 @@
+package com.yan.bookingservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yan.bookingservice.admission.AdmissionPermit;
+import com.yan.bookingservice.entity.BookingIdempotency;
+import com.yan.bookingservice.repository.BookingIdempotencyRepository;
+import com.yan.bookingservice.request.BatchBookingRequest;
+import com.yan.bookingservice.request.BookingRequest;
+import com.yan.bookingservice.response.BatchBookingResponse;
+import com.yan.bookingservice.response.BookingResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+// Makes bookings and batch bookings with an Idempotency-Key header run at most once per customer and
+// key within the TTL. Recent keys are kept in memory, completed or still in flight, so retries hitting the same
+// instance wait for or replay the first attempt. Every completed booking is also stored in the
+// booking_idempotency table in the same transaction as its outbox row, for retries that land
+// on another instance or after a restart. Only bookings that are actually made go through
+// admission control; replays are answered straight away.
+@Service
+@Slf4j
+public class BookingIdempotencyService {
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final BookingService bookingService;
+    private final BookingIdempotencyRepository bookingIdempotencyRepository;
+    private final Cache<Key, CompletableFuture<List<BookingResponse>>> responses;
+    private final Duration ttl;
+    private final Counter replayedCounter;
+
+    @Autowired
+    public BookingIdempotencyService(final BookingService bookingService,
+                                     final BookingIdempotencyRepository bookingIdempotencyRepository,
+                                     final MeterRegistry meterRegistry,
+                                     @Value("${booking.idempotency.ttl:24h}") final Duration ttl,
+                                     @Value("${booking.idempotency.cache-size:100000}") final long cacheSize) {
+        this.bookingService = bookingService;
+        this.bookingIdempotencyRepository = bookingIdempotencyRepository;
+        this.ttl = ttl;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.replayedCounter = Counter.builder("booking.idempotency.replayed")
+                .description("Bookings answered from a previous attempt with the same Idempotency-Key")
+                .register(meterRegistry);
+    }
+
+    public BookingResponse createBooking(final String idempotencyKey, final BookingRequest request,
+                                         final Supplier<AdmissionPermit> admission) {
+        return once(idempotencyKey, request.getUserId(), List.of(request), admission,
+                beforeCommit -> List.of(bookingService.createBooking(request,
+                        response -> beforeCommit.accept(List.of(response))))).get(0);
+    }
+
+    // A cart is stored and replayed as a whole, one row per item
+    public BatchBookingResponse createBookings(final String idempotencyKey, final BatchBookingRequest request,
+                                               final Supplier<AdmissionPermit> admission) {
+        final List<BookingRequest> items = request.getItems() == null ? List.of() : request.getItems().stream()
+                .map(item -> BookingRequest.builder()
+                        .userId(request.getUserId())
+                        .eventId(item == null ? null : item.getEventId())
+                        .ticketCount(item == null ? null : item.getTicketCount())
+                        .build())
+                .toList();
+        return BatchBookingResponse.of(request.getUserId(), once(idempotencyKey, request.getUserId(), items, admission,
+                beforeCommit -> bookingService.createBookings(request,
+                        response -> beforeCommit.accept(response.getBookings())).getBookings()));
+    }
+
+    private List<BookingResponse> once(final String idempotencyKey, final Long userId, final List<BookingRequest> requests,
+                                       final Supplier<AdmissionPermit> admission,
+                                       final Function<Consumer<List<BookingResponse>>, List<BookingResponse>> booking) {
+        if(idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH){
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        if(userId == null){
+            throw new IllegalArgumentException("A booking with an Idempotency-Key needs a user id");
+        }
+        // Keys are chosen by clients, so two customers may well send the same one
+        final Key key = new Key(userId, idempotencyKey);
+        final CompletableFuture<List<BookingResponse>> attempt = new CompletableFuture<>();
+        final CompletableFuture<List<BookingResponse>> previous = responses.asMap().putIfAbsent(key, attempt);
+        if(previous != null){
+            replayedCounter.increment();
+            return matching(requests, await(previous));
+        }
+        try {
+            final Optional<List<BookingResponse>> stored = findStored(key);
+            stored.ifPresent(response -> replayedCounter.increment());
+            final List<BookingResponse> response = stored.orElseGet(() -> book(key, admission, booking));
+            attempt.complete(response);
+            return matching(requests, response);
+        } catch (RuntimeException e) {
+            // Failed bookings are not remembered, so the next retry books again
+            responses.asMap().remove(key, attempt);
+            attempt.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${booking.idempotency.cleanup-interval-ms:60000}")
+    public void deleteExpired() {
+        final int deleted = bookingIdempotencyRepository.deleteAllExpired(LocalDateTime.now());
+        if(deleted > 0){
+            log.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private List<BookingResponse> book(final Key key, final Supplier<AdmissionPermit> admission,
+                                       final Function<Consumer<List<BookingResponse>>, List<BookingResponse>> booking) {
+        try (AdmissionPermit permit = admission.get()) {
+            return booking.apply(response -> bookingIdempotencyRepository.saveAllAndFlush(toIdempotency(key, response)));
+        } catch (DataIntegrityViolationException e) {
+            // Another instance committed a booking with this key first; its hold was kept and ours released
+            replayedCounter.increment();
+            return findStored(key).orElseThrow(() -> e);
+        }
+    }
+
+    private Optional<List<BookingResponse>> findStored(final Key key) {
+        final LocalDateTime now = LocalDateTime.now();
+        final List<BookingIdempotency> stored = bookingIdempotencyRepository
+                .findAllByUserIdAndIdempotencyKeyOrderByItem(key.userId(), key.idempotencyKey());
+        if(stored.isEmpty()){
+            return Optional.empty();
+        }
+        if(!stored.get(0).getExpiresAt().isAfter(now)){
+            // Expired but not cleaned up yet; free the key for this booking
+            bookingIdempotencyRepository.deleteExpired(key.userId(), key.idempotencyKey(), now);
+            return Optional.empty();
+        }
+        return Optional.of(stored.stream()
+                .map(idempotency -> BookingResponse.builder()
+                        .userId(idempotency.getUserId())
+                        .eventId(idempotency.getEventId())
+                        .ticketCount(idempotency.getTicketCount())
+                        .totalPrice(idempotency.getTotalPrice())
+                        .build())
+                .toList());
+    }
+
+    private List<BookingIdempotency> toIdempotency(final Key key, final List<BookingResponse> response) {
+        final LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        return IntStream.range(0, response.size())
+                .mapToObj(item -> BookingIdempotency.builder()
+                        .idempotencyKey(key.idempotencyKey())
+                        .userId(key.userId())
+                        .item(item)
+                        .eventId(response.get(item).getEventId())
+                        .ticketCount(response.get(item).getTicketCount())
+                        .totalPrice(response.get(item).getTotalPrice())
+                        .expiresAt(expiresAt)
+                        .build())
+                .toList();
+    }
+
+    private static List<BookingResponse> await(final CompletableFuture<List<BookingResponse>> previous) {
+        try {
+            return previous.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException cause){
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // A key belongs to one purchase; reusing it for a different one is a client error, not a replay
+    private static List<BookingResponse> matching(final List<BookingRequest> requests, final List<BookingResponse> response) {
+        final boolean same = requests.size() == response.size() && IntStream.range(0, requests.size())
+                .allMatch(i -> Objects.equals(requests.get(i).getUserId(), response.get(i).getUserId())
+                        && Objects.equals(requests.get(i).getEventId(), response.get(i).getEventId())
+                        && Objects.equals(requests.get(i).getTicketCount(), response.get(i).getTicketCount()));
+        if(!same){
+            throw new IllegalArgumentException("Idempotency-Key was already used for a different booking");
+        }
+        return response;
+    }
+
+    // A key is only unique for the customer that sent it
+    private record Key(Long userId, String idempotencyKey) {
+    }
+}
@@ -0,0 +1,137 @@
+package com.yan.bookingservice.service;
+
+import com.yan.bookingservice.entity.BookingOutbox;
+import com.yan.bookingservice.repository.BookingOutboxRepository;
+import com.yan.eventcontract.event.BookingEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Publishes bookings from the outbox table to Kafka in large batches. Rows are deleted in the same
+// transaction that locked them, only after the broker acknowledged every record of the batch.
+@Service
+@Slf4j
+public class BookingOutboxRelay {
+    private final BookingOutboxRepository bookingOutboxRepository;
+    private final KafkaTemplate<String, BookingEvent> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long sendTimeoutMillis;
+    private final Counter relayedCounter;
+    private final Timer publishTimer;
+    private final Timer outboxDelayTimer;
+    private final AtomicLong pendingRows = new AtomicLong();
+    private final AtomicLong oldestAgeMillis = new AtomicLong();
+
+    @Autowired
+    public BookingOutboxRelay(final BookingOutboxRepository bookingOutboxRepository,
+                              final KafkaTemplate<String, BookingEvent> kafkaTemplate,
+                              final TransactionTemplate transactionTemplate,
+                              final MeterRegistry meterRegistry,
+                              @Value("${booking.outbox.batch-size:500}") final int batchSize,
+                              @Value("${booking.outbox.send-timeout-ms:10000}") final long sendTimeoutMillis) {
+        this.bookingOutboxRepository = bookingOutboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.relayedCounter = Counter.builder("booking.outbox.relayed")
+                .description("Bookings published from the outbox")
+                .register(meterRegistry);
+        this.publishTimer = Timer.builder("booking.outbox.publish")
+                .description("Time from sending an outbox batch to Kafka until every record was acknowledged")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.outboxDelayTimer = Timer.builder("booking.outbox.delay")
+                .description("Time from a booking being stored until Kafka acknowledged it")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("booking.outbox.pending", pendingRows, AtomicLong::get)
+                .description("Bookings in the outbox waiting to be published")
+                .register(meterRegistry);
+        Gauge.builder("booking.outbox.lag", oldestAgeMillis, AtomicLong::get)
+                .description("Age of the oldest unpublished booking")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${booking.outbox.relay-interval-ms:50}")
+    public void relay() {
+        // Keep draining while batches come back full, so a backlog is not limited to one batch per interval
+        Integer relayed;
+        do {
+            relayed = transactionTemplate.execute(status -> relayBatch());
+        } while (relayed != null && relayed == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${booking.outbox.metrics-interval-ms:5000}")
+    public void updateLagMetrics() {
+        pendingRows.set(bookingOutboxRepository.count());
+        oldestAgeMillis.set(bookingOutboxRepository.findOldestCreatedAt()
+                .map(oldest -> Duration.between(oldest, LocalDateTime.now()).toMillis())
+                .orElse(0L));
+    }
+
+    private int relayBatch() {
+        final List<BookingOutbox> batch = bookingOutboxRepository.lockNextBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        final Timer.Sample publishSample = Timer.start();
+        // Keyed by event so every booking for an event lands on the same partition, in order
+        final List<CompletableFuture<SendResult<String, BookingEvent>>> sends = batch.stream()
+                .map(row -> kafkaTemplate.send("booking", String.valueOf(row.getEventId()), toBookingEvent(row)))
+                .toList();
+        kafkaTemplate.flush();
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // Rolls back: the rows stay in the outbox and the whole batch is retried on the next run
+            throw new RuntimeException("Failed to publish booking outbox batch", e);
+        }
+        publishSample.stop(publishTimer);
+        final Instant acknowledged = Instant.now();
+        batch.forEach(row -> outboxDelayTimer.record(Duration.between(createdAt(row), acknowledged)));
+        bookingOutboxRepository.deleteAllByIdInBatch(batch.stream().map(BookingOutbox::getId).toList());
+        relayedCounter.increment(batch.size());
+        log.debug("Relayed {} bookings to kafka", batch.size());
+        return batch.size();
+    }
+
+    private BookingEvent toBookingEvent(final BookingOutbox row) {
+        return BookingEvent.builder()
+                .userId(row.getUserId())
+                .eventId(row.getEventId())
+                .ticketCount(row.getTicketCount())
+                .totalPrice(row.getTotalPrice())
+                .holdId(row.getHoldId())
+                .createdAt(createdAt(row))
+                // A batch that fails after some records were sent is published again; the row id lets
+                // Order Service recognise those bookings
+                .bookingId(row.getId())
+                .build();
+    }
+
+    // The outbox stores local date-times (@CreationTimestamp), written by a booking service in the same zone
+    private static Instant createdAt(final BookingOutbox row) {
+        return row.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
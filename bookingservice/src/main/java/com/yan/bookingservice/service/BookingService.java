@@ -1,68 +1,246 @@
 package com.yan.bookingservice.service;
 
 import com.yan.bookingservice.client.InventoryServiceClient;
-import com.yan.bookingservice.entity.Customer;
-import com.yan.bookingservice.event.BookingEvent;
-import com.yan.bookingservice.repository.CustomerRepository;
+import com.yan.bookingservice.entity.BookingOutbox;
+import com.yan.bookingservice.repository.BookingOutboxRepository;
+import com.yan.bookingservice.request.BatchBookingRequest;
 import com.yan.bookingservice.request.BookingRequest;
+import com.yan.bookingservice.request.SeatHoldRequest;
+import com.yan.bookingservice.response.BatchBookingResponse;
 import com.yan.bookingservice.response.BookingResponse;
 import com.yan.bookingservice.response.InventoryResponse;
+import com.yan.bookingservice.response.SeatHoldResponse;
+import com.yan.eventcontract.event.BookingEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 @Slf4j
 public class BookingService {
-    private final CustomerRepository customerRepository;
+    private final CustomerExistenceService customerExistenceService;
     private final InventoryServiceClient inventoryServiceClient;
-    private final KafkaTemplate<String, BookingEvent> kafkaTemplate;
+    private final BookingOutboxRepository bookingOutboxRepository;
+    private final InventorySnapshotService inventorySnapshotService;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchItems;
+    private final Timer customerCheckTimer;
+    private final Timer inventoryCheckTimer;
+    private final Timer seatHoldTimer;
+    private final Timer outboxWriteTimer;
 
     @Autowired
-    public BookingService(final CustomerRepository customerRepository,
+    public BookingService(final CustomerExistenceService customerExistenceService,
                           final InventoryServiceClient inventoryServiceClient,
-                          final KafkaTemplate<String, BookingEvent> kafkaTemplate) {
-        this.customerRepository = customerRepository;
+                          final BookingOutboxRepository bookingOutboxRepository,
+                          final InventorySnapshotService inventorySnapshotService,
+                          final TransactionTemplate transactionTemplate,
+                          final MeterRegistry meterRegistry,
+                          @Value("${booking.batch.max-items:50}") final int maxBatchItems) {
+        this.customerExistenceService = customerExistenceService;
         this.inventoryServiceClient = inventoryServiceClient;
-        this.kafkaTemplate = kafkaTemplate;
+        this.bookingOutboxRepository = bookingOutboxRepository;
+        this.inventorySnapshotService = inventorySnapshotService;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatchItems = maxBatchItems;
+        this.customerCheckTimer = stageTimer(meterRegistry, "customer_check");
+        this.inventoryCheckTimer = stageTimer(meterRegistry, "inventory_check");
+        this.seatHoldTimer = stageTimer(meterRegistry, "seat_hold");
+        this.outboxWriteTimer = stageTimer(meterRegistry, "outbox_write");
     }
 
     public BookingResponse createBooking(final BookingRequest request){
+        return createBooking(request, response -> { });
+    }
+
+    // beforeCommit runs in the transaction that stores the outbox row, so whatever it writes
+    // is committed together with the booking or not at all
+    public BookingResponse createBooking(final BookingRequest request, final Consumer<BookingResponse> beforeCommit){
         // Check if customer exists
-        final Customer customer = customerRepository.findById(request.getUserId()).orElse(null);
-        if(customer == null){
+        if(!customerCheckTimer.record(() -> customerExistenceService.exists(request.getUserId()))){
             throw new RuntimeException("User not found");
         }
-        // Check if there is enough inventory
-        final InventoryResponse inventoryResponse = inventoryServiceClient.getInventory(request.getEventId());
+        // Sold out events are rejected from the local snapshot without a remote call
+        if(inventorySnapshotService.isSoldOut(request.getEventId(), request.getTicketCount())){
+            throw new RuntimeException("Not enough inventory");
+        }
+        // Check if there is enough inventory, asking inventory only when the snapshot is close to zero
+        final InventoryResponse inventoryResponse = inventoryCheckTimer.record(() -> inventorySnapshotService
+                .findWellAbove(request.getEventId(), request.getTicketCount())
+                .orElseGet(() -> inventoryServiceClient.getInventory(request.getEventId())));
         log.info("Inventory Response: {}", inventoryResponse);
         if(inventoryResponse.getCapacity() < request.getTicketCount()){
             throw new RuntimeException("Not enough inventory");
         }
+        // Hold the tickets until the order is placed, so they cannot be promised twice
+        final SeatHoldResponse hold = seatHoldTimer.record(
+                () -> inventoryServiceClient.holdSeats(request.getEventId(), request.getTicketCount()));
+        if(hold == null){
+            throw new RuntimeException("Not enough inventory");
+        }
         // Create booking
-        final BookingEvent bookingEvent = createBookingEvent(request, customer, inventoryResponse);
-        // Send booking to Order Service on a Kafka Topic
-        kafkaTemplate.send("booking", bookingEvent);
-        log.info("Booking sent to kafka: {}", bookingEvent);
-        return BookingResponse.builder()
+        final BookingEvent bookingEvent = createBookingEvent(request, inventoryResponse, hold);
+        final BookingResponse response = BookingResponse.builder()
                 .userId(bookingEvent.getUserId())
                 .eventId(bookingEvent.getEventId())
                 .ticketCount(bookingEvent.getTicketCount())
                 .totalPrice(bookingEvent.getTotalPrice())
                 .build();
+        // Store the booking in the outbox, BookingOutboxRelay publishes it to the Order Service on Kafka
+        try {
+            outboxWriteTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                bookingOutboxRepository.save(toOutbox(bookingEvent));
+                beforeCommit.accept(response);
+            }));
+        } catch (RuntimeException e) {
+            // Nothing was booked, give the held tickets back right away
+            inventoryServiceClient.releaseHold(hold.getHoldId());
+            throw e;
+        }
+        log.info("Booking queued in outbox: {}", bookingEvent);
+        return response;
+    }
+
+    // A cart of bookings for one customer, all or nothing: the customer is validated once, the events
+    // are checked with one inventory call, the seats held with one call and the bookings stored in
+    // one outbox transaction, which the relay then publishes together
+    public BatchBookingResponse createBookings(final BatchBookingRequest request){
+        return createBookings(request, response -> { });
+    }
+
+    // beforeCommit runs in the outbox transaction, as for a single booking
+    public BatchBookingResponse createBookings(final BatchBookingRequest request, final Consumer<BatchBookingResponse> beforeCommit){
+        final List<BookingRequest> bookings = toBookingRequests(request);
+        if(!customerCheckTimer.record(() -> customerExistenceService.exists(request.getUserId()))){
+            throw new RuntimeException("User not found");
+        }
+        // An event can appear in several items, capacity is checked for their sum
+        final Map<Long, Long> ticketsByEvent = bookings.stream()
+                .collect(Collectors.groupingBy(BookingRequest::getEventId, LinkedHashMap::new,
+                        Collectors.summingLong(BookingRequest::getTicketCount)));
+        ticketsByEvent.forEach((eventId, tickets) -> {
+            if(inventorySnapshotService.isSoldOut(eventId, tickets)){
+                throw new RuntimeException("Not enough inventory");
+            }
+        });
+        final Map<Long, InventoryResponse> inventories = inventoryCheckTimer.record(() -> getInventories(ticketsByEvent));
+        ticketsByEvent.forEach((eventId, tickets) -> {
+            final InventoryResponse inventoryResponse = inventories.get(eventId);
+            if(inventoryResponse == null){
+                throw new RuntimeException("Event not found");
+            }
+            if(inventoryResponse.getCapacity() < tickets){
+                throw new RuntimeException("Not enough inventory");
+            }
+        });
+        final List<SeatHoldResponse> holds = seatHoldTimer.record(() -> inventoryServiceClient.holdSeats(bookings.stream()
+                .map(booking -> SeatHoldRequest.builder()
+                        .eventId(booking.getEventId())
+                        .ticketCount(booking.getTicketCount())
+                        .build())
+                .toList()));
+        if(holds == null){
+            throw new RuntimeException("Not enough inventory");
+        }
+        final List<BookingEvent> bookingEvents = IntStream.range(0, bookings.size())
+                .mapToObj(i -> createBookingEvent(bookings.get(i), inventories.get(bookings.get(i).getEventId()), holds.get(i)))
+                .toList();
+        final List<BookingResponse> responses = bookingEvents.stream()
+                .map(bookingEvent -> BookingResponse.builder()
+                        .userId(bookingEvent.getUserId())
+                        .eventId(bookingEvent.getEventId())
+                        .ticketCount(bookingEvent.getTicketCount())
+                        .totalPrice(bookingEvent.getTotalPrice())
+                        .build())
+                .toList();
+        final BatchBookingResponse response = BatchBookingResponse.of(request.getUserId(), responses);
+        try {
+            outboxWriteTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                bookingOutboxRepository.saveAll(bookingEvents.stream().map(this::toOutbox).toList());
+                beforeCommit.accept(response);
+            }));
+        } catch (RuntimeException e) {
+            holds.forEach(hold -> inventoryServiceClient.releaseHold(hold.getHoldId()));
+            throw e;
+        }
+        log.info("Batch of {} bookings queued in outbox for user id: {}", bookingEvents.size(), request.getUserId());
+        return response;
+    }
+
+    private List<BookingRequest> toBookingRequests(final BatchBookingRequest request){
+        final List<BatchBookingRequest.Item> items = request.getItems();
+        if(items == null || items.isEmpty() || items.size() > maxBatchItems){
+            throw new IllegalArgumentException("A batch booking needs 1 to " + maxBatchItems + " items");
+        }
+        return items.stream()
+                .map(item -> {
+                    if(item.getEventId() == null || item.getTicketCount() == null || item.getTicketCount() <= 0){
+                        throw new IllegalArgumentException("Every item needs an event id and a positive ticket count");
+                    }
+                    return BookingRequest.builder()
+                            .userId(request.getUserId())
+                            .eventId(item.getEventId())
+                            .ticketCount(item.getTicketCount())
+                            .build();
+                })
+                .toList();
+    }
+
+    // Events with plenty of capacity come from the local snapshot, the rest from one bulk inventory call
+    private Map<Long, InventoryResponse> getInventories(final Map<Long, Long> ticketsByEvent){
+        final Map<Long, InventoryResponse> inventories = new HashMap<>();
+        final List<Long> remote = new ArrayList<>();
+        ticketsByEvent.forEach((eventId, tickets) -> inventorySnapshotService.findWellAbove(eventId, tickets)
+                .ifPresentOrElse(inventory -> inventories.put(eventId, inventory), () -> remote.add(eventId)));
+        if(!remote.isEmpty()){
+            inventoryServiceClient.getInventories(remote)
+                    .forEach(inventory -> inventories.put(inventory.getEventId(), inventory));
+        }
+        return inventories;
     }
 
     private BookingEvent createBookingEvent(final BookingRequest request,
-                                            final Customer customer,
-                                            final InventoryResponse inventoryResponse){
+                                            final InventoryResponse inventoryResponse,
+                                            final SeatHoldResponse hold){
         return BookingEvent.builder()
-                .userId(customer.getId())
+                .userId(request.getUserId())
                 .eventId(request.getEventId())
                 .ticketCount(request.getTicketCount())
                 .totalPrice(inventoryResponse.getTicketPrice().multiply(BigDecimal.valueOf(request.getTicketCount())))
+                .holdId(hold.getHoldId())
                 .build();
     }
+
+    private BookingOutbox toOutbox(final BookingEvent bookingEvent){
+        return BookingOutbox.builder()
+                .userId(bookingEvent.getUserId())
+                .eventId(bookingEvent.getEventId())
+                .ticketCount(bookingEvent.getTicketCount())
+                .totalPrice(bookingEvent.getTotalPrice())
+                .holdId(bookingEvent.getHoldId())
+                .build();
+    }
+
+    // Time spent in each step of a booking request (Prometheus: booking_stage_seconds_bucket{stage=...})
+    private static Timer stageTimer(final MeterRegistry meterRegistry, final String stage) {
+        return Timer.builder("booking.stage")
+                .description("Time spent in one step of creating a booking")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 }
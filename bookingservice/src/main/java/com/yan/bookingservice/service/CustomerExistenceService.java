@@ -0,0 +1,176 @@
+package com.yan.bookingservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yan.bookingservice.filter.LongBloomFilter;
+import com.yan.bookingservice.repository.CustomerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Answers "does this customer exist" without loading the entity, mostly without touching MySQL.
+// Ids the Bloom filter has never seen are rejected outright, unless they are above the trusted
+// watermark. Ids it might contain are confirmed once with an exists query and then remembered in a
+// bounded cache.
+// Auto-increment ids can commit out of order, so an id below the highest one loaded may still show
+// up later. An id only counts as trusted once a load that saw a higher id is older than the commit
+// grace period; the range below it is then read once more before the watermark moves.
+@Service
+@Slf4j
+public class CustomerExistenceService {
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    private final CustomerRepository customerRepository;
+    private final Cache<Long, Boolean> knownCustomers;
+    private final long expectedCustomers;
+    private final double falsePositiveProbability;
+    private final long commitGraceMillis;
+    private final Counter filteredCounter;
+    private final Counter cachedCounter;
+    private final Counter databaseCounter;
+    private volatile LongBloomFilter filter;
+    private volatile long highestLoadedId;
+    // Every customer id up to here was committed and loaded into the filter
+    private volatile long trustedId;
+    // Highest ids seen by recent loads, oldest first, until they are older than the commit grace period
+    private final Deque<Watermark> watermarks = new ArrayDeque<>();
+    // Serializes rebuilds and refreshes. A lock rather than synchronized: they query MySQL and run on
+    // virtual threads, which a monitor would pin to their carrier on JDKs before 24.
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private long loadedCount;
+
+    @Autowired
+    public CustomerExistenceService(final CustomerRepository customerRepository,
+                                    final MeterRegistry meterRegistry,
+                                    @Value("${booking.customer-cache.maximum-size:100000}") final long cacheSize,
+                                    @Value("${booking.customer-filter.expected-customers:1000000}") final long expectedCustomers,
+                                    @Value("${booking.customer-filter.false-positive-probability:0.01}") final double falsePositiveProbability,
+                                    @Value("${booking.customer-filter.commit-grace:30s}") final Duration commitGrace) {
+        this.customerRepository = customerRepository;
+        this.knownCustomers = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .build();
+        this.expectedCustomers = expectedCustomers;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.commitGraceMillis = commitGrace.toMillis();
+        this.filteredCounter = customerCheckCounter(meterRegistry, "filtered");
+        this.cachedCounter = customerCheckCounter(meterRegistry, "cached");
+        this.databaseCounter = customerCheckCounter(meterRegistry, "database");
+    }
+
+    public boolean exists(final Long customerId) {
+        final LongBloomFilter current = filter;
+        if(current != null && customerId <= trustedId && !current.mightContain(customerId)){
+            filteredCounter.increment();
+            return false;
+        }
+        if(knownCustomers.getIfPresent(customerId) != null){
+            cachedCounter.increment();
+            return true;
+        }
+        databaseCounter.increment();
+        final boolean exists = customerRepository.existsById(customerId);
+        if(exists){
+            knownCustomers.put(customerId, Boolean.TRUE);
+        }
+        return exists;
+    }
+
+    // Full rebuild on startup and periodically, so the filter stays sized for the table. The trusted
+    // watermark carries over: every id below it was committed before this scan started
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${booking.customer-filter.rebuild-interval-ms:600000}",
+            fixedDelayString = "${booking.customer-filter.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        loadLock.lock();
+        try {
+            // Grows with the table, so the false positive rate stays near the configured one
+            final LongBloomFilter rebuilt = new LongBloomFilter(Math.max(expectedCustomers, loadedCount * 2), falsePositiveProbability);
+            loadedCount = 0;
+            final long highest = loadIds(rebuilt, 0L, Long.MAX_VALUE, true);
+            filter = rebuilt;
+            highestLoadedId = highest;
+            watermarks.addLast(new Watermark(highest, System.currentTimeMillis()));
+            log.info("Built customer filter with {} ids up to id {}", loadedCount, highest);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${booking.customer-filter.refresh-interval-ms:5000}")
+    public void refresh() {
+        loadLock.lock();
+        try {
+            final LongBloomFilter current = filter;
+            if(current == null){
+                return;
+            }
+            if(loadedCount > current.expectedInsertions()){
+                log.warn("Customer filter holds {} ids, more than the {} it was sized for until the next rebuild",
+                        loadedCount, current.expectedInsertions());
+            }
+            highestLoadedId = loadIds(current, highestLoadedId, Long.MAX_VALUE, true);
+            // Taken after the load: ids below the highest one were assigned before it was read
+            final long now = System.currentTimeMillis();
+            watermarks.addLast(new Watermark(highestLoadedId, now));
+            advanceTrustedId(current, now);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void advanceTrustedId(final LongBloomFilter current, final long now) {
+        Watermark settled = null;
+        while (!watermarks.isEmpty() && now - watermarks.peekFirst().loadedAtMillis() >= commitGraceMillis) {
+            settled = watermarks.pollFirst();
+        }
+        if(settled == null || settled.id() <= trustedId){
+            return;
+        }
+        // Ids below the settled watermark that were still uncommitted when it was loaded are visible by now
+        loadIds(current, trustedId, settled.id(), false);
+        trustedId = settled.id();
+    }
+
+    // Adds the ids in (afterId, upToId] to the filter and returns the last one; counted towards the
+    // filter's size unless they are being read again
+    private long loadIds(final LongBloomFilter target, final long afterId, final long upToId, final boolean count) {
+        long lastId = afterId;
+        List<Long> ids;
+        do {
+            ids = customerRepository.findIdsBetween(lastId, upToId, Limit.of(LOAD_PAGE_SIZE));
+            ids.forEach(target::add);
+            if(count){
+                loadedCount += ids.size();
+            }
+            if(!ids.isEmpty()){
+                lastId = ids.getLast();
+            }
+        } while (ids.size() == LOAD_PAGE_SIZE);
+        return lastId;
+    }
+
+    private static Counter customerCheckCounter(final MeterRegistry meterRegistry, final String result) {
+        return Counter.builder("booking.customer.check")
+                .description("Customer existence checks by where they were answered")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Watermark(long id, long loadedAtMillis) {
+    }
+}
@@ -0,0 +1,68 @@
+package com.yan.bookingservice.service;
+
+import com.yan.bookingservice.response.InventoryResponse;
+import com.yan.eventcontract.event.CapacityChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.PartitionOffset;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Local, eventually consistent copy of the left capacity of every event, fed by the compacted
+// inventory-capacity topic. Capacity only goes down, so a lagging snapshot can overstate what is
+// left but never understate it: rejecting on the snapshot is always right, accepting is not.
+@Service
+@Slf4j
+public class InventorySnapshotService {
+    private final Map<Long, CapacityChangedEvent> capacities = new ConcurrentHashMap<>();
+    private final long nearZeroMargin;
+
+    @Autowired
+    public InventorySnapshotService(final MeterRegistry meterRegistry,
+                                    @Value("${booking.inventory-snapshot.near-zero-margin:50}") final long nearZeroMargin) {
+        this.nearZeroMargin = nearZeroMargin;
+        Gauge.builder("booking.inventory.snapshot.events", capacities, Map::size)
+                .description("Events in the local inventory snapshot")
+                .register(meterRegistry);
+    }
+
+    // Every instance needs every update: it assigns itself all partitions and reads the compacted topic from
+    // the start on every boot. Without a consumer group nothing is committed and no group is left behind.
+    @KafkaListener(topicPartitions = @TopicPartition(topic = "inventory-capacity",
+            partitions = "#{@topicPartitionFinder.partitions('inventory-capacity')}",
+            partitionOffsets = @PartitionOffset(partition = "*", initialOffset = "0")), batch = "true")
+    public void capacityChanged(final List<CapacityChangedEvent> events) {
+        events.stream()
+                .filter(Objects::nonNull)
+                .forEach(event -> capacities.put(event.getEventId(), event));
+        log.debug("Applied {} capacity changes to the inventory snapshot", events.size());
+    }
+
+    public boolean isSoldOut(final Long eventId, final Long ticketCount) {
+        final CapacityChangedEvent snapshot = capacities.get(eventId);
+        return snapshot != null && snapshot.getLeftCapacity() < ticketCount;
+    }
+
+    // Only answers for events with plenty of capacity left; close to zero the caller asks inventory
+    public Optional<InventoryResponse> findWellAbove(final Long eventId, final Long ticketCount) {
+        final CapacityChangedEvent snapshot = capacities.get(eventId);
+        if(snapshot == null || snapshot.getLeftCapacity() < ticketCount + nearZeroMargin){
+            return Optional.empty();
+        }
+        return Optional.of(InventoryResponse.builder()
+                .eventId(snapshot.getEventId())
+                .capacity(snapshot.getLeftCapacity())
+                .ticketPrice(snapshot.getTicketPrice())
+                .build());
+    }
+}
@@ -0,0 +1,92 @@
+package com.yan.bookingservice.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void rejectsAboveTheLimit() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, Duration.ofMillis(100), 0.5);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void growsWhileFastAndInUse() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 100, Duration.ofMillis(100), 0.5);
+
+        for (int round = 0; round < 20; round++) {
+            final int limit = limiter.getLimit();
+            for (int i = 0; i < limit; i++) {
+                assertTrue(limiter.tryAcquire());
+            }
+            for (int i = 0; i < limit; i++) {
+                limiter.release(FAST);
+            }
+        }
+
+        assertTrue(limiter.getLimit() > 4, "Limit: " + limiter.getLimit());
+    }
+
+    @Test
+    void backsOffWhenSlowButNotBelowMinimum() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(64, 4, 100, Duration.ofMillis(100), 0.5);
+
+        limiter.tryAcquire();
+        limiter.release(SLOW);
+        assertEquals(32, limiter.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.release(SLOW);
+        }
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void backsOffOncePerRoundOfSlowRequests() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(64, 4, 100, Duration.ofMillis(100), 0.5);
+
+        // 64 requests running when the downstream slows down all finish slow
+        for (int i = 0; i < 64; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        for (int i = 0; i < 64; i++) {
+            limiter.release(SLOW);
+        }
+        assertEquals(32, limiter.getLimit());
+
+        // The next round, admitted under the new limit, is slow too
+        for (int i = 0; i < 32; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        for (int i = 0; i < 32; i++) {
+            limiter.release(SLOW);
+        }
+        assertEquals(16, limiter.getLimit());
+    }
+
+    @Test
+    void doesNotGrowWhenIdle() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 100, Duration.ofMillis(100), 0.5);
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire();
+            limiter.release(FAST);
+        }
+
+        assertEquals(20, limiter.getLimit());
+    }
+}
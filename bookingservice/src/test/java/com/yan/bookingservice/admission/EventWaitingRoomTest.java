@@ -0,0 +1,60 @@
+package com.yan.bookingservice.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventWaitingRoomTest {
+
+    @Test
+    void admitsPositionsInOrderAtTheDrainRate() {
+        final EventWaitingRoom room = new EventWaitingRoom();
+        final long first = room.enqueue(0);
+        final long second = room.enqueue(0);
+        final long third = room.enqueue(0);
+
+        assertFalse(room.isEmpty());
+        assertEquals(3, room.positionInQueue(third));
+
+        room.drain(0.5);
+        assertFalse(room.isAdmitted(first));
+        room.drain(0.5);
+        assertTrue(room.isAdmitted(first));
+        assertFalse(room.isAdmitted(second));
+        assertEquals(1, room.positionInQueue(second));
+
+        room.drain(10);
+        assertTrue(room.isAdmitted(third));
+        assertTrue(room.isEmpty());
+    }
+
+    @Test
+    void drainingAnEmptyRoomDoesNotAdmitFuturePositions() {
+        final EventWaitingRoom room = new EventWaitingRoom();
+
+        room.drain(100);
+        final long position = room.enqueue(0);
+
+        assertFalse(room.isAdmitted(position));
+        assertTrue(room.hasIssued(position));
+        assertFalse(room.hasIssued(position + 1));
+    }
+
+    @Test
+    void admittedPositionGetsInOnce() {
+        final EventWaitingRoom room = new EventWaitingRoom();
+        final long position = room.enqueue(1_000);
+        room.drain(1);
+
+        assertTrue(room.consume(position, 1_000));
+        assertFalse(room.consume(position, 1_000));
+        room.restore(position);
+        assertTrue(room.consume(position, 1_000));
+
+        // Once its token has expired the position is forgotten; the token itself is rejected by then
+        room.forgetConsumedIssuedBefore(2_000);
+        assertTrue(room.consume(position, 1_000));
+    }
+}
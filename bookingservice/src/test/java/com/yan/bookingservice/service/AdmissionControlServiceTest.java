@@ -0,0 +1,110 @@
+package com.yan.bookingservice.service;
+
+import com.yan.bookingservice.admission.AdmissionPermit;
+import com.yan.bookingservice.admission.AdmissionQueuedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AdmissionControlServiceTest {
+    private static final long EVENT_ID = 7L;
+
+    // One booking at a time, so a second concurrent one is queued
+    private final AdmissionControlService service = instance("http://booking-a:8081");
+
+    @Test
+    void queueTokenAdmitsItsUserOnce() {
+        final String token = queue(1L);
+        service.drainWaitingRooms();
+
+        service.admit(EVENT_ID, 1L, token).close();
+
+        // Reusing the token takes a new place in the queue
+        final AdmissionQueuedException reused = assertThrows(AdmissionQueuedException.class, () -> queue(1L, token));
+        assertNotEquals(token, reused.getQueueToken());
+    }
+
+    @Test
+    void queueTokenOfAnotherUserIsIgnored() {
+        final String token = queue(1L);
+        service.drainWaitingRooms();
+
+        final AdmissionQueuedException other = assertThrows(AdmissionQueuedException.class, () -> queue(2L, token));
+
+        // User 2 gets a place of its own, and user 1 can still use the token
+        assertNotEquals(token, other.getQueueToken());
+        service.admit(EVENT_ID, 1L, token).close();
+    }
+
+    @Test
+    void queueTokenNamesTheInstanceThatIssuedIt() {
+        final String token = queue(1L);
+
+        final String issuer = token.substring(0, token.indexOf('.'));
+        assertEquals("http://booking-a:8081", new String(Base64.getUrlDecoder().decode(issuer), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void queueTokenIsOnlyAcceptedByTheInstanceThatIssuedIt() {
+        // Same secret, and the other instance has handed out the same position to someone else
+        final AdmissionControlService other = instance("http://booking-b:8081");
+        final String token = queue(1L);
+        queue(other, 2L);
+        service.drainWaitingRooms();
+        other.drainWaitingRooms();
+
+        final AdmissionQueuedException elsewhere = assertThrows(AdmissionQueuedException.class, () -> queue(other, 1L, token));
+
+        // User 1 is queued anew there instead of taking user 2's place, and the token still works where it was issued
+        assertNotEquals(token, elsewhere.getQueueToken());
+        service.admit(EVENT_ID, 1L, token).close();
+    }
+
+    @Test
+    void cartWaitsBehindTheBusiestOfItsEvents() {
+        queue(1L);
+
+        // Nobody waits for event 8, but the cart also books event 7
+        final AdmissionQueuedException cart = assertThrows(AdmissionQueuedException.class,
+                () -> service.admit(List.of(8L, EVENT_ID), 3L, null));
+        assertEquals(2, cart.getPosition());
+        service.admit(8L, 4L, null).close();
+
+        service.drainWaitingRooms();
+        service.admit(List.of(8L, EVENT_ID), 3L, cart.getQueueToken()).close();
+    }
+
+    // Queues userId behind a booking that is in progress and returns the queue token it gets
+    private String queue(final long userId) {
+        return queue(service, userId);
+    }
+
+    private void queue(final long userId, final String token) {
+        queue(service, userId, token);
+    }
+
+    private static String queue(final AdmissionControlService instance, final long userId) {
+        try (AdmissionPermit running = instance.admit(EVENT_ID, 99L, null)) {
+            return assertThrows(AdmissionQueuedException.class, () -> instance.admit(EVENT_ID, userId, null)).getQueueToken();
+        }
+    }
+
+    private static void queue(final AdmissionControlService instance, final long userId, final String token) {
+        try (AdmissionPermit running = instance.admit(EVENT_ID, 99L, null)) {
+            instance.admit(EVENT_ID, userId, token).close();
+        }
+    }
+
+    private static AdmissionControlService instance(final String url) {
+        return new AdmissionControlService(new SimpleMeterRegistry(), true,
+                50, Duration.ofMinutes(10), "secret", url, 1, 1, 1, Duration.ofSeconds(10), 0.9);
+    }
+}
@@ -0,0 +1,150 @@
+package com.yan.bookingservice.service;
+
+import com.yan.bookingservice.admission.AdmissionPermit;
+import com.yan.bookingservice.admission.AdmissionQueuedException;
+import com.yan.bookingservice.entity.BookingIdempotency;
+import com.yan.bookingservice.repository.BookingIdempotencyRepository;
+import com.yan.bookingservice.request.BatchBookingRequest;
+import com.yan.bookingservice.request.BookingRequest;
+import com.yan.bookingservice.response.BatchBookingResponse;
+import com.yan.bookingservice.response.BookingResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingIdempotencyServiceTest {
+    private final BookingService bookingService = mock(BookingService.class);
+    private final BookingIdempotencyRepository repository = mock(BookingIdempotencyRepository.class);
+    private final BookingIdempotencyService service = new BookingIdempotencyService(
+            bookingService, repository, new SimpleMeterRegistry(), Duration.ofHours(24), 1_000);
+
+    @Test
+    void sameKeyFromDifferentUsersBooksTwice() {
+        when(repository.findAllByUserIdAndIdempotencyKeyOrderByItem(any(), any())).thenReturn(List.of());
+        when(bookingService.createBooking(any(BookingRequest.class), any(Consumer.class)))
+                .thenAnswer(invocation -> response(invocation.getArgument(0)));
+
+        final BookingResponse first = service.createBooking("checkout-1", request(1L), AdmissionPermit::unlimited);
+        final BookingResponse second = service.createBooking("checkout-1", request(2L), AdmissionPermit::unlimited);
+
+        assertEquals(1L, first.getUserId());
+        assertEquals(2L, second.getUserId());
+        verify(bookingService, times(2)).createBooking(any(BookingRequest.class), any(Consumer.class));
+        verify(repository).findAllByUserIdAndIdempotencyKeyOrderByItem(1L, "checkout-1");
+        verify(repository).findAllByUserIdAndIdempotencyKeyOrderByItem(2L, "checkout-1");
+    }
+
+    @Test
+    void sameKeyFromSameUserIsReplayed() {
+        when(repository.findAllByUserIdAndIdempotencyKeyOrderByItem(any(), any())).thenReturn(List.of());
+        when(bookingService.createBooking(any(BookingRequest.class), any(Consumer.class)))
+                .thenAnswer(invocation -> response(invocation.getArgument(0)));
+
+        final BookingResponse first = service.createBooking("checkout-1", request(1L), AdmissionPermit::unlimited);
+        final BookingResponse retry = service.createBooking("checkout-1", request(1L), AdmissionPermit::unlimited);
+
+        assertEquals(first, retry);
+        verify(bookingService, times(1)).createBooking(any(BookingRequest.class), any(Consumer.class));
+    }
+
+    @Test
+    void replayDoesNotWaitForAdmission() {
+        when(repository.findAllByUserIdAndIdempotencyKeyOrderByItem(any(), any())).thenReturn(List.of());
+        when(bookingService.createBooking(any(BookingRequest.class), any(Consumer.class)))
+                .thenAnswer(invocation -> response(invocation.getArgument(0)));
+        final BookingResponse first = service.createBooking("checkout-1", request(1L), AdmissionPermit::unlimited);
+
+        // Admission is saturated by the time the client retries
+        final BookingResponse retry = service.createBooking("checkout-1", request(1L), () -> {
+            throw new AdmissionQueuedException("token", 10, 1);
+        });
+
+        assertEquals(first, retry);
+    }
+
+    @Test
+    void sameKeyFromSameUserReplaysTheWholeCart() {
+        when(repository.findAllByUserIdAndIdempotencyKeyOrderByItem(any(), any())).thenReturn(List.of());
+        when(bookingService.createBookings(any(BatchBookingRequest.class), any(Consumer.class)))
+                .thenAnswer(invocation -> {
+                    final BatchBookingRequest request = invocation.getArgument(0);
+                    return BatchBookingResponse.of(request.getUserId(), request.getItems().stream()
+                            .map(item -> response(BookingRequest.builder().userId(request.getUserId())
+                                    .eventId(item.getEventId()).ticketCount(item.getTicketCount()).build()))
+                            .toList());
+                });
+
+        final BatchBookingResponse first = service.createBookings("cart-1", cart(5L, 6L), AdmissionPermit::unlimited);
+        final BatchBookingResponse retry = service.createBookings("cart-1", cart(5L, 6L), AdmissionPermit::unlimited);
+
+        assertEquals(first, retry);
+        assertEquals(new BigDecimal("40.00"), retry.getTotalPrice());
+        verify(bookingService, times(1)).createBookings(any(BatchBookingRequest.class), any(Consumer.class));
+        // A different cart, or a single booking, under the same key is not a replay
+        assertThrows(IllegalArgumentException.class,
+                () -> service.createBookings("cart-1", cart(5L), AdmissionPermit::unlimited));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.createBooking("cart-1", request(1L), AdmissionPermit::unlimited));
+    }
+
+    @Test
+    void storedCartIsReplayedInItemOrder() {
+        when(repository.findAllByUserIdAndIdempotencyKeyOrderByItem(1L, "cart-1")).thenReturn(List.of(
+                stored(0, 5L), stored(1, 6L)));
+
+        final BatchBookingResponse replayed = service.createBookings("cart-1", cart(5L, 6L), () -> {
+            throw new AdmissionQueuedException("token", 10, 1);
+        });
+
+        assertEquals(List.of(5L, 6L), replayed.getBookings().stream().map(BookingResponse::getEventId).toList());
+        verify(bookingService, times(0)).createBookings(any(BatchBookingRequest.class), any(Consumer.class));
+    }
+
+    private static BatchBookingRequest cart(final Long... eventIds) {
+        return BatchBookingRequest.builder()
+                .userId(1L)
+                .items(Arrays.stream(eventIds)
+                        .map(eventId -> BatchBookingRequest.Item.builder().eventId(eventId).ticketCount(2L).build())
+                        .toList())
+                .build();
+    }
+
+    private static BookingIdempotency stored(final int item, final long eventId) {
+        return BookingIdempotency.builder()
+                .userId(1L)
+                .idempotencyKey("cart-1")
+                .item(item)
+                .eventId(eventId)
+                .ticketCount(2L)
+                .totalPrice(new BigDecimal("20.00"))
+                .expiresAt(LocalDateTime.now().plusHours(1))
+                .build();
+    }
+
+    private static BookingRequest request(final long userId) {
+        return BookingRequest.builder().userId(userId).eventId(5L).ticketCount(2L).build();
+    }
+
+    private static BookingResponse response(final BookingRequest request) {
+        return BookingResponse.builder()
+                .userId(request.getUserId())
+                .eventId(request.getEventId())
+                .ticketCount(request.getTicketCount())
+                .totalPrice(new BigDecimal("20.00"))
+                .build();
+    }
+}
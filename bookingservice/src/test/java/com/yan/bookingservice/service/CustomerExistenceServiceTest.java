@@ -0,0 +1,106 @@
+package com.yan.bookingservice.service;
+
+import com.yan.bookingservice.repository.CustomerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.springframework.data.domain.Limit;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerExistenceServiceTest {
+    // Committed customer ids
+    private final NavigableSet<Long> customers = new ConcurrentSkipListSet<>();
+    private final CustomerRepository customerRepository = mock(CustomerRepository.class);
+
+    CustomerExistenceServiceTest() {
+        when(customerRepository.findIdsBetween(anyLong(), anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            final long afterId = invocation.getArgument(0);
+            final long upToId = invocation.getArgument(1);
+            final Limit limit = invocation.getArgument(2);
+            return List.copyOf(customers.subSet(afterId, false, upToId, true)).stream().limit(limit.max()).toList();
+        });
+        when(customerRepository.existsById(anyLong())).thenAnswer(invocation -> customers.contains(invocation.<Long>getArgument(0)));
+    }
+
+    @Test
+    void idCommittedAfterAHigherOneIsAccepted() {
+        final CustomerExistenceService service = service(Duration.ofHours(1));
+        // Customer 3 got its id before 4 but has not committed yet
+        customers.addAll(List.of(1L, 2L, 4L));
+        service.rebuild();
+        service.refresh();
+
+        customers.add(3L);
+
+        assertTrue(service.exists(3L));
+    }
+
+    @Test
+    void settledRangeIsReadAgainBeforeItIsTrusted() {
+        final CustomerExistenceService service = service(Duration.ZERO);
+        customers.addAll(List.of(1L, 2L, 4L));
+        service.rebuild();
+        customers.add(3L);
+
+        service.refresh();
+
+        assertTrue(service.exists(3L));
+    }
+
+    @Test
+    void unknownIdBelowTrustedWatermarkIsRejectedWithoutQuery() {
+        final CustomerExistenceService service = service(Duration.ZERO);
+        customers.addAll(List.of(1L, 2L, 4L, 10L));
+        service.rebuild();
+        service.refresh();
+
+        assertFalse(service.exists(5L));
+        verify(customerRepository, never()).existsById(5L);
+    }
+
+    @Test
+    void refreshDoesNotPinItsVirtualThreadWhileQuerying() throws Exception {
+        final CustomerExistenceService service = service(Duration.ZERO);
+        service.rebuild();
+        // The id query blocks the way a slow database would
+        when(customerRepository.findIdsBetween(anyLong(), anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return List.of();
+        });
+
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(10));
+            recording.start();
+            Thread.ofVirtual().start(service::refresh).join();
+            recording.stop();
+            final Path events = Files.createTempFile("pinning", ".jfr");
+            try {
+                recording.dump(events);
+                assertEquals(List.of(), RecordingFile.readAllEvents(events));
+            } finally {
+                Files.delete(events);
+            }
+        }
+    }
+
+    private CustomerExistenceService service(final Duration commitGrace) {
+        return new CustomerExistenceService(customerRepository, new SimpleMeterRegistry(), 1_000, 1_000, 0.0001, commitGrace);
+    }
+}
@@ -0,0 +1,110 @@
+package com.yan.bookingservice.service;
+
+import com.yan.bookingservice.config.TopicPartitionFinder;
+import com.yan.eventcontract.event.CapacityChangedEvent;
+import com.yan.eventcontract.serialization.CapacityChangedEventDeserializer;
+import com.yan.eventcontract.serialization.CapacityChangedEventSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringJUnitConfig
+@EmbeddedKafka(kraft = true, partitions = 3, topics = "inventory-capacity")
+class InventorySnapshotServiceTest {
+
+    @Configuration
+    @EnableKafka
+    @Import(InventorySnapshotService.class)
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        // Like the auto-configured factory of the service, which sets no group.id either
+        @Bean
+        ConsumerFactory<String, CapacityChangedEvent> consumerFactory(final EmbeddedKafkaBroker broker) {
+            return new DefaultKafkaConsumerFactory<>(Map.of(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()),
+                    new StringDeserializer(), new CapacityChangedEventDeserializer());
+        }
+
+        @Bean
+        ConcurrentKafkaListenerContainerFactory<String, CapacityChangedEvent> kafkaListenerContainerFactory(
+                final ConsumerFactory<String, CapacityChangedEvent> consumerFactory) {
+            final ConcurrentKafkaListenerContainerFactory<String, CapacityChangedEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+            factory.setConsumerFactory(consumerFactory);
+            return factory;
+        }
+
+        @Bean
+        TopicPartitionFinder topicPartitionFinder(final ConsumerFactory<String, CapacityChangedEvent> consumerFactory) {
+            return new TopicPartitionFinder(consumerFactory);
+        }
+    }
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private InventorySnapshotService inventorySnapshotService;
+
+    @Test
+    void readsEveryPartitionWithoutJoiningAConsumerGroup() throws Exception {
+        try (KafkaProducer<String, CapacityChangedEvent> producer = new KafkaProducer<>(
+                Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()),
+                new StringSerializer(), new CapacityChangedEventSerializer())) {
+            for (long eventId = 1; eventId <= 6; eventId++) {
+                producer.send(new ProducerRecord<>("inventory-capacity", String.valueOf(eventId),
+                        new CapacityChangedEvent(eventId, 100L, BigDecimal.TEN)));
+            }
+            producer.send(new ProducerRecord<>("inventory-capacity", "1", new CapacityChangedEvent(1L, 0L, BigDecimal.TEN)));
+        }
+
+        final long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!everyEventApplied() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertTrue(everyEventApplied());
+        assertTrue(inventorySnapshotService.isSoldOut(1L, 1L));
+        try (AdminClient admin = AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()))) {
+            assertTrue(admin.listConsumerGroups().all().get().isEmpty(), "consumer groups left on the broker");
+        }
+    }
+
+    private boolean everyEventApplied() {
+        if (!inventorySnapshotService.isSoldOut(1L, 1L)) {
+            return false;
+        }
+        for (long eventId = 2; eventId <= 6; eventId++) {
+            if (inventorySnapshotService.findWellAbove(eventId, 1L).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,73 @@
+package com.yan.eventcontract.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yan.eventcontract.event.BookingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+// Avro against the Jackson JSON encoding the services used before. Run with -prof gc for the bytes
+// allocated per operation; record sizes are checked in JsonComparisonTest.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingEventSerializationBenchmark {
+    private final BookingEvent event = BookingEvent.builder()
+            .userId(1_234L)
+            .eventId(42L)
+            .ticketCount(3L)
+            .totalPrice(new BigDecimal("149.97"))
+            .holdId("3f1c9a8e-4a51-4a8e-9d0f-2b7a6c1d5e42")
+            .createdAt(Instant.parse("2025-01-01T10:15:30.123Z"))
+            .build();
+    private final ObjectMapper json = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final BookingEventSerializer avroSerializer = new BookingEventSerializer();
+    private final BookingEventDeserializer avroDeserializer = new BookingEventDeserializer();
+    private byte[] avroBytes;
+    private byte[] jsonBytes;
+
+    @Setup
+    public void encode() throws IOException {
+        avroBytes = avroSerializer.serialize("booking", event);
+        jsonBytes = json.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public byte[] avroSerialize() {
+        return avroSerializer.serialize("booking", event);
+    }
+
+    @Benchmark
+    public BookingEvent avroDeserialize() {
+        return avroDeserializer.deserialize("booking", avroBytes);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() throws IOException {
+        return json.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public BookingEvent jsonDeserialize() throws IOException {
+        return json.readValue(jsonBytes, BookingEvent.class);
+    }
+}
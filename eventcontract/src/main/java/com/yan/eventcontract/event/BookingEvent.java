@@ -0,0 +1,26 @@
+package com.yan.eventcontract.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookingEvent {
+    private Long userId;
+    private Long eventId;
+    private Long ticketCount;
+    private BigDecimal totalPrice;
+    private String holdId;
+    // When the booking was accepted; null in events written before this field existed
+    private Instant createdAt;
+    // Outbox row the booking was published from; redeliveries of one booking carry the same id.
+    // Null in events written before this field existed
+    private Long bookingId;
+}
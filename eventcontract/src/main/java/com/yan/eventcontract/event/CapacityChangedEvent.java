@@ -1,4 +1,4 @@
-package com.yan.bookingservice.event;
+package com.yan.eventcontract.event;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -11,9 +11,8 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class BookingEvent {
-    private Long userId;
+public class CapacityChangedEvent {
     private Long eventId;
-    private Long ticketCount;
-    private BigDecimal totalPrice;
+    private Long leftCapacity;
+    private BigDecimal ticketPrice;
 }
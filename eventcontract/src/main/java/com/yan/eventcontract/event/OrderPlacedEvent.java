@@ -0,0 +1,17 @@
+package com.yan.eventcontract.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderPlacedEvent {
+    private Long orderId;
+    private Long eventId;
+    private Long ticketCount;
+    private String holdId;
+}
@@ -0,0 +1,16 @@
+package com.yan.eventcontract.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderRejectedEvent {
+    private Long orderId;
+    private Long eventId;
+    private Long ticketCount;
+}
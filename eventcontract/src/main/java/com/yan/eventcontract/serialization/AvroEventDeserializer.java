@@ -0,0 +1,31 @@
+package com.yan.eventcontract.serialization;
+
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+// Reads records written with the codec's schema or one of its previous versions, picked by the header
+// fingerprint; Avro resolves older writer schemas against the current one
+public abstract class AvroEventDeserializer<T> implements Deserializer<T> {
+    private final EventCodec<T> codec;
+    private final BinaryMessageDecoder<GenericRecord> decoder;
+
+    protected AvroEventDeserializer(final EventCodec<T> codec) {
+        this.codec = codec;
+        this.decoder = new BinaryMessageDecoder<>(EventSchemas.MODEL, codec.schema());
+        codec.previousSchemas().forEach(decoder::addSchema);
+    }
+
+    @Override
+    public T deserialize(final String topic, final byte[] data) {
+        if(data == null){
+            return null;
+        }
+        try {
+            return codec.fromRecord(decoder.decode(data));
+        } catch (Exception e) {
+            throw new SerializationException("Failed to deserialize " + codec.schema().getName() + " from topic " + topic, e);
+        }
+    }
+}
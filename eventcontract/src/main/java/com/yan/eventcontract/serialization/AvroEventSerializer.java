@@ -0,0 +1,33 @@
+package com.yan.eventcontract.serialization;
+
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.ByteArrayOutputStream;
+
+// Writes Avro single-object encoding: the 10-byte schema fingerprint header followed by the binary record
+public abstract class AvroEventSerializer<T> implements Serializer<T> {
+    private final EventCodec<T> codec;
+    private final BinaryMessageEncoder<GenericRecord> encoder;
+
+    protected AvroEventSerializer(final EventCodec<T> codec) {
+        this.codec = codec;
+        this.encoder = new BinaryMessageEncoder<>(EventSchemas.MODEL, codec.schema());
+    }
+
+    @Override
+    public byte[] serialize(final String topic, final T data) {
+        if(data == null){
+            return null;
+        }
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+            encoder.encode(codec.toRecord(data), out);
+            return out.toByteArray();
+        } catch (Exception e) {
+            throw new SerializationException("Failed to serialize " + codec.schema().getName() + " for topic " + topic, e);
+        }
+    }
+}
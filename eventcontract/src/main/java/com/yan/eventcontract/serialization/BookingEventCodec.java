@@ -0,0 +1,58 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.BookingEvent;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+public final class BookingEventCodec implements EventCodec<BookingEvent> {
+    private static final Schema SCHEMA = EventSchemas.load("BookingEvent");
+    // Before bookingId was added
+    private static final Schema SCHEMA_V2 = EventSchemas.load("BookingEvent-v2");
+    // Before createdAt was added
+    private static final Schema SCHEMA_V1 = EventSchemas.load("BookingEvent-v1");
+    public static final BookingEventCodec INSTANCE = new BookingEventCodec();
+
+    private BookingEventCodec() {
+    }
+
+    @Override
+    public Schema schema() {
+        return SCHEMA;
+    }
+
+    @Override
+    public List<Schema> previousSchemas() {
+        return List.of(SCHEMA_V2, SCHEMA_V1);
+    }
+
+    @Override
+    public GenericRecord toRecord(final BookingEvent event) {
+        final GenericData.Record record = new GenericData.Record(SCHEMA);
+        record.put("userId", event.getUserId());
+        record.put("eventId", event.getEventId());
+        record.put("ticketCount", event.getTicketCount());
+        record.put("totalPrice", EventSchemas.price(event.getTotalPrice()));
+        record.put("holdId", event.getHoldId());
+        record.put("createdAt", event.getCreatedAt());
+        record.put("bookingId", event.getBookingId());
+        return record;
+    }
+
+    @Override
+    public BookingEvent fromRecord(final GenericRecord record) {
+        return BookingEvent.builder()
+                .userId((Long) record.get("userId"))
+                .eventId((Long) record.get("eventId"))
+                .ticketCount((Long) record.get("ticketCount"))
+                .totalPrice((BigDecimal) record.get("totalPrice"))
+                .holdId(EventSchemas.string(record.get("holdId")))
+                .createdAt((Instant) record.get("createdAt"))
+                .bookingId((Long) record.get("bookingId"))
+                .build();
+    }
+}
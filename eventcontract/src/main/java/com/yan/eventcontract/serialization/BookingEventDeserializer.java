@@ -0,0 +1,10 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.BookingEvent;
+
+public class BookingEventDeserializer extends AvroEventDeserializer<BookingEvent> {
+
+    public BookingEventDeserializer() {
+        super(BookingEventCodec.INSTANCE);
+    }
+}
@@ -0,0 +1,10 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.BookingEvent;
+
+public class BookingEventSerializer extends AvroEventSerializer<BookingEvent> {
+
+    public BookingEventSerializer() {
+        super(BookingEventCodec.INSTANCE);
+    }
+}
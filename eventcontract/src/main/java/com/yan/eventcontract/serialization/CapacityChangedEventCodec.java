@@ -0,0 +1,39 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.CapacityChangedEvent;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+
+import java.math.BigDecimal;
+
+public final class CapacityChangedEventCodec implements EventCodec<CapacityChangedEvent> {
+    private static final Schema SCHEMA = EventSchemas.load("CapacityChangedEvent");
+    public static final CapacityChangedEventCodec INSTANCE = new CapacityChangedEventCodec();
+
+    private CapacityChangedEventCodec() {
+    }
+
+    @Override
+    public Schema schema() {
+        return SCHEMA;
+    }
+
+    @Override
+    public GenericRecord toRecord(final CapacityChangedEvent event) {
+        final GenericData.Record record = new GenericData.Record(SCHEMA);
+        record.put("eventId", event.getEventId());
+        record.put("leftCapacity", event.getLeftCapacity());
+        record.put("ticketPrice", EventSchemas.price(event.getTicketPrice()));
+        return record;
+    }
+
+    @Override
+    public CapacityChangedEvent fromRecord(final GenericRecord record) {
+        return CapacityChangedEvent.builder()
+                .eventId((Long) record.get("eventId"))
+                .leftCapacity((Long) record.get("leftCapacity"))
+                .ticketPrice((BigDecimal) record.get("ticketPrice"))
+                .build();
+    }
+}
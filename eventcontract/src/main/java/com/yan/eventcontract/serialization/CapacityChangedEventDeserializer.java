@@ -0,0 +1,10 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.CapacityChangedEvent;
+
+public class CapacityChangedEventDeserializer extends AvroEventDeserializer<CapacityChangedEvent> {
+
+    public CapacityChangedEventDeserializer() {
+        super(CapacityChangedEventCodec.INSTANCE);
+    }
+}
@@ -0,0 +1,10 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.CapacityChangedEvent;
+
+public class CapacityChangedEventSerializer extends AvroEventSerializer<CapacityChangedEvent> {
+
+    public CapacityChangedEventSerializer() {
+        super(CapacityChangedEventCodec.INSTANCE);
+    }
+}
@@ -0,0 +1,22 @@
+package com.yan.eventcontract.serialization;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+
+import java.util.List;
+
+// Maps one event type to and from an Avro record of schema(); Avro's datum writer and reader do the encoding
+public interface EventCodec<T> {
+
+    Schema schema();
+
+    GenericRecord toRecord(T event);
+
+    T fromRecord(GenericRecord record);
+
+    // Earlier versions of schema() that records may still be written with, while producers are upgraded.
+    // They are resolved against schema(), so fields added since then come back with their defaults
+    default List<Schema> previousSchemas() {
+        return List.of();
+    }
+}
@@ -0,0 +1,48 @@
+package com.yan.eventcontract.serialization;
+
+import org.apache.avro.Conversions;
+import org.apache.avro.Schema;
+import org.apache.avro.data.TimeConversions;
+import org.apache.avro.generic.GenericData;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class EventSchemas {
+    static final int PRICE_SCALE = 2;
+
+    // Generic data model that maps the decimal and timestamp-millis logical types to BigDecimal and Instant
+    static final GenericData MODEL = new GenericData();
+
+    static {
+        MODEL.addLogicalTypeConversion(new Conversions.DecimalConversion());
+        MODEL.addLogicalTypeConversion(new TimeConversions.TimestampMillisConversion());
+    }
+
+    private EventSchemas() {
+    }
+
+    public static Schema load(final String name) {
+        try (InputStream in = EventSchemas.class.getResourceAsStream("/avro/" + name + ".avsc")) {
+            if(in == null){
+                throw new IllegalStateException("Schema not found: " + name);
+            }
+            return new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The decimal conversion only writes values with exactly the schema's scale
+    static BigDecimal price(final BigDecimal price) {
+        return price.setScale(PRICE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    // Strings are read back as Avro Utf8
+    static String string(final Object value) {
+        return value == null ? null : value.toString();
+    }
+}
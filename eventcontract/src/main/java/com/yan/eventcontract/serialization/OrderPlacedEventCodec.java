@@ -0,0 +1,39 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.OrderPlacedEvent;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+
+public final class OrderPlacedEventCodec implements EventCodec<OrderPlacedEvent> {
+    private static final Schema SCHEMA = EventSchemas.load("OrderPlacedEvent");
+    public static final OrderPlacedEventCodec INSTANCE = new OrderPlacedEventCodec();
+
+    private OrderPlacedEventCodec() {
+    }
+
+    @Override
+    public Schema schema() {
+        return SCHEMA;
+    }
+
+    @Override
+    public GenericRecord toRecord(final OrderPlacedEvent event) {
+        final GenericData.Record record = new GenericData.Record(SCHEMA);
+        record.put("orderId", event.getOrderId());
+        record.put("eventId", event.getEventId());
+        record.put("ticketCount", event.getTicketCount());
+        record.put("holdId", event.getHoldId());
+        return record;
+    }
+
+    @Override
+    public OrderPlacedEvent fromRecord(final GenericRecord record) {
+        return OrderPlacedEvent.builder()
+                .orderId((Long) record.get("orderId"))
+                .eventId((Long) record.get("eventId"))
+                .ticketCount((Long) record.get("ticketCount"))
+                .holdId(EventSchemas.string(record.get("holdId")))
+                .build();
+    }
+}
@@ -0,0 +1,10 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.OrderPlacedEvent;
+
+public class OrderPlacedEventDeserializer extends AvroEventDeserializer<OrderPlacedEvent> {
+
+    public OrderPlacedEventDeserializer() {
+        super(OrderPlacedEventCodec.INSTANCE);
+    }
+}
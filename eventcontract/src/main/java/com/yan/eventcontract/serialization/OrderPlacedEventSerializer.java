@@ -0,0 +1,10 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.OrderPlacedEvent;
+
+public class OrderPlacedEventSerializer extends AvroEventSerializer<OrderPlacedEvent> {
+
+    public OrderPlacedEventSerializer() {
+        super(OrderPlacedEventCodec.INSTANCE);
+    }
+}
@@ -0,0 +1,37 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.OrderRejectedEvent;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+
+public final class OrderRejectedEventCodec implements EventCodec<OrderRejectedEvent> {
+    private static final Schema SCHEMA = EventSchemas.load("OrderRejectedEvent");
+    public static final OrderRejectedEventCodec INSTANCE = new OrderRejectedEventCodec();
+
+    private OrderRejectedEventCodec() {
+    }
+
+    @Override
+    public Schema schema() {
+        return SCHEMA;
+    }
+
+    @Override
+    public GenericRecord toRecord(final OrderRejectedEvent event) {
+        final GenericData.Record record = new GenericData.Record(SCHEMA);
+        record.put("orderId", event.getOrderId());
+        record.put("eventId", event.getEventId());
+        record.put("ticketCount", event.getTicketCount());
+        return record;
+    }
+
+    @Override
+    public OrderRejectedEvent fromRecord(final GenericRecord record) {
+        return OrderRejectedEvent.builder()
+                .orderId((Long) record.get("orderId"))
+                .eventId((Long) record.get("eventId"))
+                .ticketCount((Long) record.get("ticketCount"))
+                .build();
+    }
+}
@@ -0,0 +1,10 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.OrderRejectedEvent;
+
+public class OrderRejectedEventDeserializer extends AvroEventDeserializer<OrderRejectedEvent> {
+
+    public OrderRejectedEventDeserializer() {
+        super(OrderRejectedEventCodec.INSTANCE);
+    }
+}
@@ -0,0 +1,10 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.OrderRejectedEvent;
+
+public class OrderRejectedEventSerializer extends AvroEventSerializer<OrderRejectedEvent> {
+
+    public OrderRejectedEventSerializer() {
+        super(OrderRejectedEventCodec.INSTANCE);
+    }
+}
@@ -0,0 +1,111 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.BookingEvent;
+import com.yan.eventcontract.event.CapacityChangedEvent;
+import com.yan.eventcontract.event.OrderPlacedEvent;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Decodes what the serializers write with a plain GenericDatumReader against the .avsc files, without
+// logical type conversions, so any other Avro consumer of the topics reads the same values
+class EventSchemaConformanceTest {
+    private static final int HEADER_LENGTH = 10;
+
+    @Test
+    void bookingEventMatchesSchema() throws IOException {
+        final BookingEvent event = BookingEvent.builder()
+                .userId(1L)
+                .eventId(42L)
+                .ticketCount(3L)
+                .totalPrice(new BigDecimal("1234567.89"))
+                .holdId("hold")
+                .createdAt(Instant.parse("2025-01-01T10:15:30.123Z"))
+                .bookingId(981L)
+                .build();
+
+        final GenericRecord record = read("BookingEvent", new BookingEventSerializer().serialize("booking", event));
+
+        assertEquals(1L, record.get("userId"));
+        assertEquals(42L, record.get("eventId"));
+        assertEquals(3L, record.get("ticketCount"));
+        assertEquals(new BigDecimal("1234567.89"), decimal(record.get("totalPrice"), 2));
+        assertEquals("hold", record.get("holdId").toString());
+        assertEquals(event.getCreatedAt().toEpochMilli(), record.get("createdAt"));
+        assertEquals(981L, record.get("bookingId"));
+    }
+
+    @Test
+    void bookingEventWithoutOptionalFieldsMatchesSchema() throws IOException {
+        final BookingEvent event = BookingEvent.builder()
+                .userId(1L)
+                .eventId(2L)
+                .ticketCount(1L)
+                .totalPrice(new BigDecimal("-0.5"))
+                .build();
+
+        final GenericRecord record = read("BookingEvent", new BookingEventSerializer().serialize("booking", event));
+
+        assertEquals(new BigDecimal("-0.50"), decimal(record.get("totalPrice"), 2));
+        assertNull(record.get("holdId"));
+        assertNull(record.get("createdAt"));
+        assertNull(record.get("bookingId"));
+    }
+
+    @Test
+    void orderPlacedEventMatchesSchema() throws IOException {
+        final OrderPlacedEvent event = OrderPlacedEvent.builder().orderId(Long.MAX_VALUE).eventId(7L).ticketCount(2L).build();
+
+        final GenericRecord record = read("OrderPlacedEvent", new OrderPlacedEventSerializer().serialize("order-placed", event));
+
+        assertEquals(Long.MAX_VALUE, record.get("orderId"));
+        assertEquals(7L, record.get("eventId"));
+        assertEquals(2L, record.get("ticketCount"));
+        assertNull(record.get("holdId"));
+    }
+
+    @Test
+    void capacityChangedEventMatchesSchema() throws IOException {
+        final CapacityChangedEvent event = CapacityChangedEvent.builder().eventId(7L).leftCapacity(0L).ticketPrice(new BigDecimal("49.99")).build();
+
+        final GenericRecord record = read("CapacityChangedEvent", new CapacityChangedEventSerializer().serialize("inventory-capacity", event));
+
+        assertEquals(7L, record.get("eventId"));
+        assertEquals(0L, record.get("leftCapacity"));
+        assertEquals(new BigDecimal("49.99"), decimal(record.get("ticketPrice"), 2));
+    }
+
+    // Checks the single-object header against the schema fingerprint, then reads the body
+    private static GenericRecord read(final String schemaName, final byte[] bytes) throws IOException {
+        final Schema schema = EventSchemas.load(schemaName);
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN)
+                .put((byte) 0xC3)
+                .put((byte) 0x01)
+                .putLong(SchemaNormalization.parsingFingerprint64(schema));
+        assertEquals(Arrays.toString(header.array()), Arrays.toString(Arrays.copyOf(bytes, HEADER_LENGTH)));
+        return new GenericDatumReader<GenericRecord>(schema)
+                .read(null, DecoderFactory.get().binaryDecoder(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH, null));
+    }
+
+    // decimal logical type: big-endian two's complement unscaled value
+    private static BigDecimal decimal(final Object value, final int scale) {
+        final ByteBuffer buffer = (ByteBuffer) value;
+        final byte[] unscaled = new byte[buffer.remaining()];
+        buffer.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
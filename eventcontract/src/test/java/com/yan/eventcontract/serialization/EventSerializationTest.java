@@ -0,0 +1,156 @@
+package com.yan.eventcontract.serialization;
+
+import com.yan.eventcontract.event.BookingEvent;
+import com.yan.eventcontract.event.CapacityChangedEvent;
+import com.yan.eventcontract.event.OrderPlacedEvent;
+import com.yan.eventcontract.event.OrderRejectedEvent;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EventSerializationTest {
+
+    @Test
+    void bookingEventRoundTrip() {
+        final BookingEvent event = BookingEvent.builder()
+                .userId(1L)
+                .eventId(42L)
+                .ticketCount(3L)
+                .totalPrice(new BigDecimal("1234567.89"))
+                .holdId("3f1c9a8e-4a51-4a8e-9d0f-2b7a6c1d5e42")
+                .createdAt(Instant.parse("2025-01-01T10:15:30.123Z"))
+                .bookingId(981L)
+                .build();
+
+        final byte[] bytes = new BookingEventSerializer().serialize("booking", event);
+
+        assertEquals((byte) 0xC3, bytes[0]);
+        assertEquals((byte) 0x01, bytes[1]);
+        assertEquals(event, new BookingEventDeserializer().deserialize("booking", bytes));
+    }
+
+    @Test
+    void bookingEventWithoutHoldRoundTrip() {
+        final BookingEvent event = BookingEvent.builder()
+                .userId(1L)
+                .eventId(2L)
+                .ticketCount(1L)
+                .totalPrice(new BigDecimal("-0.50"))
+                .build();
+
+        final byte[] bytes = new BookingEventSerializer().serialize("booking", event);
+
+        assertEquals(event, new BookingEventDeserializer().deserialize("booking", bytes));
+    }
+
+    @Test
+    void readsBookingEventWrittenWithPreviousSchema() throws IOException {
+        // What a producer still on the schema without createdAt sends
+        final GenericData.Record v1 = new GenericData.Record(EventSchemas.load("BookingEvent-v1"));
+        v1.put("userId", 1L);
+        v1.put("eventId", 42L);
+        v1.put("ticketCount", 3L);
+        v1.put("totalPrice", new BigDecimal("30.00"));
+        v1.put("holdId", "hold");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryMessageEncoder<GenericRecord>(EventSchemas.MODEL, v1.getSchema()).encode(v1, out);
+
+        final BookingEvent event = new BookingEventDeserializer().deserialize("booking", out.toByteArray());
+
+        assertEquals(BookingEvent.builder()
+                .userId(1L)
+                .eventId(42L)
+                .ticketCount(3L)
+                .totalPrice(new BigDecimal("30.00"))
+                .holdId("hold")
+                .build(), event);
+    }
+
+    @Test
+    void readsBookingEventWrittenWithoutBookingId() throws IOException {
+        // What a producer still on the schema without bookingId sends
+        final GenericData.Record v2 = new GenericData.Record(EventSchemas.load("BookingEvent-v2"));
+        v2.put("userId", 1L);
+        v2.put("eventId", 42L);
+        v2.put("ticketCount", 3L);
+        v2.put("totalPrice", new BigDecimal("30.00"));
+        v2.put("createdAt", Instant.parse("2025-01-01T10:15:30.123Z"));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryMessageEncoder<GenericRecord>(EventSchemas.MODEL, v2.getSchema()).encode(v2, out);
+
+        final BookingEvent event = new BookingEventDeserializer().deserialize("booking", out.toByteArray());
+
+        assertEquals(BookingEvent.builder()
+                .userId(1L)
+                .eventId(42L)
+                .ticketCount(3L)
+                .totalPrice(new BigDecimal("30.00"))
+                .createdAt(Instant.parse("2025-01-01T10:15:30.123Z"))
+                .build(), event);
+    }
+
+    @Test
+    void orderPlacedEventRoundTrip() {
+        final OrderPlacedEvent event = OrderPlacedEvent.builder()
+                .orderId(Long.MAX_VALUE)
+                .eventId(7L)
+                .ticketCount(2L)
+                .holdId("hold")
+                .build();
+
+        final byte[] bytes = new OrderPlacedEventSerializer().serialize("order-placed", event);
+
+        assertEquals(event, new OrderPlacedEventDeserializer().deserialize("order-placed", bytes));
+    }
+
+    @Test
+    void capacityChangedEventRoundTrip() {
+        final CapacityChangedEvent event = CapacityChangedEvent.builder()
+                .eventId(7L)
+                .leftCapacity(0L)
+                .ticketPrice(new BigDecimal("49.99"))
+                .build();
+
+        final byte[] bytes = new CapacityChangedEventSerializer().serialize("inventory-capacity", event);
+
+        assertEquals(event, new CapacityChangedEventDeserializer().deserialize("inventory-capacity", bytes));
+    }
+
+    @Test
+    void orderRejectedEventRoundTrip() {
+        final OrderRejectedEvent event = OrderRejectedEvent.builder()
+                .orderId(42L)
+                .eventId(7L)
+                .ticketCount(3L)
+                .build();
+
+        final byte[] bytes = new OrderRejectedEventSerializer().serialize("order-rejected", event);
+
+        assertEquals(event, new OrderRejectedEventDeserializer().deserialize("order-rejected", bytes));
+    }
+
+    @Test
+    void rejectsRecordWrittenWithAnotherSchema() {
+        final OrderPlacedEvent event = OrderPlacedEvent.builder().orderId(1L).eventId(1L).ticketCount(1L).build();
+        final byte[] bytes = new OrderPlacedEventSerializer().serialize("order-placed", event);
+
+        assertThrows(SerializationException.class, () -> new BookingEventDeserializer().deserialize("booking", bytes));
+    }
+
+    @Test
+    void nullRecordStaysNull() {
+        assertArrayEquals(null, new BookingEventSerializer().serialize("booking", null));
+        assertEquals(null, new BookingEventDeserializer().deserialize("booking", null));
+    }
+}
@@ -0,0 +1,47 @@
+package com.yan.eventcontract.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yan.eventcontract.event.BookingEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compares the Avro serializers with the Jackson JSON encoding the services used before by record size;
+// time and allocation per round trip are measured by BookingEventSerializationBenchmark (jmh profile)
+class JsonComparisonTest {
+    private static final BookingEvent EVENT = BookingEvent.builder()
+            .userId(1_234L)
+            .eventId(42L)
+            .ticketCount(3L)
+            .totalPrice(new BigDecimal("149.97"))
+            .holdId("3f1c9a8e-4a51-4a8e-9d0f-2b7a6c1d5e42")
+            .createdAt(Instant.parse("2025-01-01T10:15:30.123Z"))
+            .build();
+
+    private final ObjectMapper json = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final BookingEventSerializer avroSerializer = new BookingEventSerializer();
+    private final BookingEventDeserializer avroDeserializer = new BookingEventDeserializer();
+
+    @Test
+    void avroRecordIsSmallerThanJson() throws IOException {
+        final byte[] avro = avroSerializer.serialize("booking", EVENT);
+        final byte[] jsonBytes = json.writeValueAsBytes(EVENT);
+
+        assertTrue(avro.length < jsonBytes.length, "avro " + avro.length + " B, json " + jsonBytes.length + " B");
+    }
+
+    @Test
+    void bothEncodingsRoundTripTheSameEvent() throws IOException {
+        assertEquals(EVENT, avroDeserializer.deserialize("booking", avroSerializer.serialize("booking", EVENT)));
+        assertEquals(EVENT, json.readValue(json.writeValueAsBytes(EVENT), BookingEvent.class));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.yan.inventoryservice.counter;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+// One-ticket reservations on a single hot event: the striped in-memory counter hot events use, against
+// the conditional UPDATE of EventRepository.decrementCapacity that every other event goes through.
+// Run at the thread counts of interest, e.g. -t 1, -t 8, -t 64. The database path runs on in-memory H2
+// by default; pass -jvmArgsAppend "-Dbenchmark.jdbc.url=jdbc:mysql://... -Dbenchmark.jdbc.user=...
+// -Dbenchmark.jdbc.password=..." to measure MySQL row lock contention. It uses its own table.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CapacityContentionBenchmark {
+    private static final String DECREMENT_SQL = "UPDATE capacity_benchmark SET left_capacity = left_capacity - ? " +
+            "WHERE id = 1 AND left_capacity - held_capacity >= ?";
+
+    @State(Scope.Benchmark)
+    public static class Counter {
+        @Param({"1", "16"})
+        public int stripes;
+
+        StripedCapacityCounter counter;
+
+        // A fresh counter per iteration, as if everything was flushed, keeps the pending
+        // tickets of a shard within its 32 bits
+        @Setup(Level.Iteration)
+        public void setUp() {
+            counter = new StripedCapacityCounter(Integer.MAX_VALUE, stripes);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        HikariDataSource dataSource;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            final HikariConfig config = new HikariConfig();
+            config.setJdbcUrl(System.getProperty("benchmark.jdbc.url", "jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1"));
+            config.setUsername(System.getProperty("benchmark.jdbc.user", "sa"));
+            config.setPassword(System.getProperty("benchmark.jdbc.password", ""));
+            config.setMaximumPoolSize(64);
+            dataSource = new HikariDataSource(config);
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS capacity_benchmark " +
+                        "(id BIGINT PRIMARY KEY, left_capacity BIGINT NOT NULL, held_capacity BIGINT NOT NULL)");
+                statement.execute("DELETE FROM capacity_benchmark");
+                statement.execute("INSERT INTO capacity_benchmark VALUES (1, " + Long.MAX_VALUE / 2 + ", 0)");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE capacity_benchmark");
+            }
+            dataSource.close();
+        }
+    }
+
+    @Benchmark
+    public boolean stripedCounter(final Counter state) {
+        return state.counter.tryAcquire(1);
+    }
+
+    @Benchmark
+    public int conditionalUpdate(final Database state) throws SQLException {
+        try (Connection connection = state.dataSource.getConnection();
+             PreparedStatement update = connection.prepareStatement(DECREMENT_SQL)) {
+            update.setLong(1, 1);
+            update.setLong(2, 1);
+            return update.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.yan.inventoryservice.service;
+
+import com.example.yan.inventoryservice.InventoryserviceApplication;
+import com.yan.eventcontract.event.OrderPlacedEvent;
+import com.yan.eventcontract.serialization.OrderPlacedEventSerializer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// End-to-end throughput of the order-placed path: orders produced the way orderservice sends them,
+// keyed by event, to an embedded broker, consumed by the batch listener of the real application
+// context and applied to the event table. An invocation returns once processed_order holds every
+// order sent, so the score is orders applied per second at each listener concurrency. The context
+// runs on in-memory H2 in MySQL mode with the Flyway migrations; the absolute numbers are not MySQL's.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class OrderPlacedThroughputBenchmark {
+    private static final String TOPIC = "order-placed";
+    private static final int PARTITIONS = 6;
+    private static final int EVENTS = 12;
+    private static final int ORDERS_PER_INVOCATION = 2000;
+    private static final long AWAIT_TIMEOUT_MILLIS = 60_000;
+
+    @Param({"1", "3"})
+    public int listenerConcurrency;
+
+    private EmbeddedKafkaKraftBroker broker;
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private KafkaProducer<String, OrderPlacedEvent> producer;
+    private long sentOrders;
+
+    @Setup
+    public void setUp() {
+        broker = new EmbeddedKafkaKraftBroker(1, PARTITIONS, TOPIC);
+        broker.afterPropertiesSet();
+        context = new SpringApplicationBuilder(InventoryserviceApplication.class)
+                .web(WebApplicationType.NONE)
+                // Command line arguments, so they take precedence over application.properties
+                .run(
+                        "--spring.main.keep-alive=false",
+                        "--logging.level.root=WARN",
+                        "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                        "--spring.kafka.consumer.auto-offset-reset=earliest",
+                        "--inventory.order-placed.concurrency=" + listenerConcurrency,
+                        "--spring.datasource.url=jdbc:h2:mem:throughput;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect");
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO venue (id, name, address, total_capacity) VALUES (1, 'Arena', 'Main Street 1', 2000000000)");
+        for (long eventId = 1; eventId <= EVENTS; eventId++) {
+            jdbcTemplate.update("INSERT INTO event (id, name, venue_id, total_capacity, left_capacity) VALUES (?, ?, 1, 2000000000, 2000000000)",
+                    eventId, "Event " + eventId);
+        }
+        producer = new KafkaProducer<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ProducerConfig.ACKS_CONFIG, "all",
+                ProducerConfig.LINGER_MS_CONFIG, 5),
+                new StringSerializer(), new OrderPlacedEventSerializer());
+    }
+
+    @TearDown
+    public void tearDown() {
+        producer.close();
+        context.close();
+        broker.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_INVOCATION)
+    public long placeOrders() throws InterruptedException, TimeoutException {
+        for (int i = 0; i < ORDERS_PER_INVOCATION; i++) {
+            final long orderId = ++sentOrders;
+            final long eventId = orderId % EVENTS + 1;
+            producer.send(new ProducerRecord<>(TOPIC, String.valueOf(eventId), new OrderPlacedEvent(orderId, eventId, 1L, null)));
+        }
+        producer.flush();
+        return awaitProcessed(sentOrders);
+    }
+
+    private long awaitProcessed(final long expected) throws InterruptedException, TimeoutException {
+        final long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT_MILLIS;
+        long processed;
+        while ((processed = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM processed_order", Long.class)) < expected) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new TimeoutException("Only " + processed + " of " + expected + " orders processed");
+            }
+            Thread.sleep(5);
+        }
+        return processed;
+    }
+}
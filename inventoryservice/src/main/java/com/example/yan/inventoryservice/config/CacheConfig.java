@@ -0,0 +1,11 @@
+package com.example.yan.inventoryservice.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String EVENT_INVENTORY_CACHE = "eventInventory";
+    public static final String VENUE_INVENTORY_CACHE = "venueInventory";
+}
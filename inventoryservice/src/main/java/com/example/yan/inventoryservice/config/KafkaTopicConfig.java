@@ -0,0 +1,39 @@
+package com.example.yan.inventoryservice.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicConfig {
+    public static final String INVENTORY_CAPACITY_TOPIC = "inventory-capacity";
+    public static final String ORDER_REJECTED_TOPIC = "order-rejected";
+
+    @Value("${inventory-capacity.topic.partitions:6}")
+    private int inventoryCapacityPartitions;
+
+    @Value("${order-rejected.topic.partitions:6}")
+    private int orderRejectedPartitions;
+
+    // Compacted and keyed by eventId: the topic keeps the latest capacity of every event,
+    // so a new consumer rebuilds the full snapshot by reading it from the beginning
+    @Bean
+    public NewTopic inventoryCapacityTopic() {
+        return TopicBuilder.name(INVENTORY_CAPACITY_TOPIC)
+                .partitions(inventoryCapacityPartitions)
+                .replicas(1)
+                .compact()
+                .build();
+    }
+
+    // Keyed by orderId; orderservice marks each of these orders rejected
+    @Bean
+    public NewTopic orderRejectedTopic() {
+        return TopicBuilder.name(ORDER_REJECTED_TOPIC)
+                .partitions(orderRejectedPartitions)
+                .replicas(1)
+                .build();
+    }
+}
@@ -1,24 +1,36 @@
 package com.example.yan.inventoryservice.controller;
 
+import com.example.yan.inventoryservice.request.CapacityUpdateRequest;
+import com.example.yan.inventoryservice.request.SeatHoldRequest;
+import com.example.yan.inventoryservice.response.EventInventoryPageResponse;
 import com.example.yan.inventoryservice.response.EventInventoryResponse;
+import com.example.yan.inventoryservice.response.SeatHoldResponse;
 import com.example.yan.inventoryservice.response.VenueInventoryResponse;
 import com.example.yan.inventoryservice.service.InventoryService;
+import com.example.yan.inventoryservice.service.SeatHoldService;
 import org.apache.coyote.Response;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1")
 public class InventoryController {
+    private static final int MAX_PAGE_SIZE = 1000;
 
     private InventoryService inventoryService;
+    private SeatHoldService seatHoldService;
 
     @Autowired
-    public InventoryController(final InventoryService inventoryService) {
+    public InventoryController(final InventoryService inventoryService, final SeatHoldService seatHoldService) {
         this.inventoryService = inventoryService;
+        this.seatHoldService = seatHoldService;
     }
 
     @GetMapping("/inventory/events")
@@ -26,6 +38,28 @@ public class InventoryController {
         return inventoryService.getAllEvents();
     }
 
+    // Resolves several events in one query; unknown ids are left out of the response
+    @GetMapping("/inventory/events/batch")
+    public ResponseEntity<List<EventInventoryResponse>> inventoryGetEvents(@RequestParam("ids") Set<Long> eventIds){
+        if(eventIds.size() > MAX_PAGE_SIZE){
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(inventoryService.getEventsInventory(eventIds));
+    }
+
+    @GetMapping("/inventory/events/page")
+    public @ResponseBody EventInventoryPageResponse inventoryGetEventsPage(@RequestParam(name = "afterId", defaultValue = "0") Long afterId,
+                                                                         @RequestParam(name = "size", defaultValue = "100") int size){
+        return inventoryService.getEventsPage(afterId, Math.clamp(size, 1, MAX_PAGE_SIZE));
+    }
+
+    @GetMapping(path = "/inventory/events/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> inventoryStreamAllEvents(){
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(inventoryService::writeAllEvents);
+    }
+
     @GetMapping("/inventory/venue/{venueId}")
     public @ResponseBody VenueInventoryResponse inventoryByVenueId(@PathVariable("venueId") Long venueId){
         return inventoryService.getVenueInformation(venueId);
@@ -38,9 +72,47 @@ public class InventoryController {
 
     @PutMapping("/inventory/event/{eventId}/capacity/{capacity}")
     public ResponseEntity<Void> updateEventCapacity(@PathVariable("eventId") Long eventId,
-                                                    @PathVariable("capacity") Long ticketsBooked) {
-        inventoryService.updateEventCapacity(eventId, ticketsBooked);
+                                                    @PathVariable("capacity") Long ticketsBooked,
+                                                    @RequestParam(name = "holdIds", required = false) List<String> holdIdParams,
+                                                    @RequestBody(required = false) CapacityUpdateRequest request) {
+        // Hold ids come in the body when a whole batch of orders is confirmed at once
+        final List<String> holdIds = request != null && request.getHoldIds() != null ? request.getHoldIds() : holdIdParams;
+        final boolean updated = holdIds == null || holdIds.isEmpty()
+                ? inventoryService.updateEventCapacity(eventId, ticketsBooked)
+                : seatHoldService.confirm(eventId, ticketsBooked, holdIds);
+        if(!updated){
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/inventory/event/{eventId}/hold/{ticketCount}")
+    public ResponseEntity<SeatHoldResponse> holdSeats(@PathVariable("eventId") Long eventId,
+                                                      @PathVariable("ticketCount") Long ticketCount,
+                                                      @RequestParam(name = "ttlSeconds", required = false) Long ttlSeconds) {
+        return seatHoldService.createHold(eventId, ticketCount, ttlSeconds)
+                .map(hold -> ResponseEntity.status(HttpStatus.CREATED).body(hold))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    // Holds seats for several events at once, all or nothing (409 if any of them cannot be held)
+    @PostMapping("/inventory/holds")
+    public ResponseEntity<List<SeatHoldResponse>> holdSeats(@RequestBody List<SeatHoldRequest> requests,
+                                                            @RequestParam(name = "ttlSeconds", required = false) Long ttlSeconds) {
+        if(requests.size() > MAX_PAGE_SIZE){
+            return ResponseEntity.badRequest().build();
+        }
+        return seatHoldService.createHolds(requests, ttlSeconds)
+                .map(holds -> ResponseEntity.status(HttpStatus.CREATED).body(holds))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    @DeleteMapping("/inventory/hold/{holdId}")
+    public ResponseEntity<Void> releaseHold(@PathVariable("holdId") String holdId) {
+        if(!seatHoldService.release(holdId)){
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
 }
@@ -0,0 +1,15 @@
+package com.example.yan.inventoryservice.controller;
+
+import com.example.yan.inventoryservice.service.InventoryNotFoundException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class InventoryExceptionHandler {
+
+    @ExceptionHandler(InventoryNotFoundException.class)
+    public ResponseEntity<Void> notFound(final InventoryNotFoundException e) {
+        return ResponseEntity.notFound().build();
+    }
+}
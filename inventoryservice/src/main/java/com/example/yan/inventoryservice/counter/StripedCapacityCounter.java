@@ -0,0 +1,188 @@
+package com.example.yan.inventoryservice.counter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Remaining capacity of one event split across independent shards so concurrent reservations
+// do not all CAS the same memory location. Each shard packs the tickets it still has and the
+// tickets reserved from it since the last flush into one long, so a reservation moves tickets
+// from available to pending in a single CAS. Capacity is never granted twice, and available plus
+// pending only changes when the owner drains, restores or resets it, never under a reservation.
+public class StripedCapacityCounter {
+    // Shards are spaced 8 longs (64 bytes) apart to keep them on separate cache lines
+    private static final int PADDING = 8;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final int stripes;
+    private final AtomicLongArray shards;
+
+    public StripedCapacityCounter(final long capacity, final int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripes must be positive");
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Capacity must fit in an int");
+        }
+        this.stripes = stripes;
+        this.shards = new AtomicLongArray(stripes * PADDING);
+        final long share = Math.max(capacity, 0) / stripes;
+        final long remainder = Math.max(capacity, 0) % stripes;
+        for (int i = 0; i < stripes; i++) {
+            shards.set(i * PADDING, pack(share + (i < remainder ? 1 : 0), 0));
+        }
+    }
+
+    public boolean tryAcquire(final long tickets) {
+        if (tickets <= 0) {
+            throw new IllegalArgumentException("Tickets must be positive");
+        }
+        final int home = ThreadLocalRandom.current().nextInt(stripes);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            // Fast path: the whole reservation fits in this thread's home shard.
+            // Slow path: the home shard only had part of it, so collect the rest from the others
+            long taken = takeUpTo(home, tickets);
+            for (int n = 1, i = (home + 1) % stripes; n < stripes && taken < tickets; n++, i = (i + 1) % stripes) {
+                taken += takeUpTo(i, tickets - taken);
+            }
+            if (taken == tickets) {
+                return true;
+            }
+            give(home, taken);
+            // Another thread may have been holding part of the capacity while collecting; only
+            // retry when there is enough left in total
+            if (available() < tickets) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // Like tryAcquire, but at least `reserved` tickets have to stay available afterwards. The check runs
+    // after taking the tickets, so of two reservations racing for the last unreserved ones the later
+    // one always sees both and backs out; at worst both do.
+    public boolean tryAcquire(final long tickets, final long reserved) {
+        if (!tryAcquire(tickets)) {
+            return false;
+        }
+        if (available() >= reserved) {
+            return true;
+        }
+        release(tickets);
+        return false;
+    }
+
+    public void release(final long tickets) {
+        give(ThreadLocalRandom.current().nextInt(stripes), tickets);
+    }
+
+    public long available() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += available(shards.get(i * PADDING));
+        }
+        return Math.max(sum, 0);
+    }
+
+    // Tickets reserved since the last call; the caller is responsible for persisting them
+    public long drainPending() {
+        long drained = 0;
+        for (int i = 0; i < stripes; i++) {
+            final int index = i * PADDING;
+            long current;
+            do {
+                current = shards.get(index);
+            } while (pending(current) != 0 && !shards.compareAndSet(index, current, pack(available(current), 0)));
+            drained += pending(current);
+        }
+        return drained;
+    }
+
+    // Puts back tickets that were drained but could not be persisted, so the next flush retries them
+    public void restorePending(final long tickets) {
+        update(0, 0, tickets);
+    }
+
+    // Re-bases the counter on the persisted capacity, which must already include every drained
+    // reservation: afterwards available plus pending equals it. Reservations keep running meanwhile;
+    // they never change that sum, so none of them is lost or counted twice.
+    public void resetTo(final long persisted) {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            final long current = shards.get(i * PADDING);
+            total += available(current) + pending(current);
+        }
+        final long delta = persisted - total;
+        if (delta > 0) {
+            update(0, delta, 0);
+            return;
+        }
+        long removed = 0;
+        for (int i = 0; i < stripes && removed < -delta; i++) {
+            removed += removeUpTo(i, -delta - removed);
+        }
+        if (removed < -delta) {
+            // More is reserved than the database has left; the shortfall stays as a debt on shard 0
+            update(0, delta + removed, 0);
+        }
+    }
+
+    private long takeUpTo(final int stripe, final long wanted) {
+        final int index = stripe * PADDING;
+        while (true) {
+            final long current = shards.get(index);
+            final long available = available(current);
+            if (available <= 0) {
+                return 0;
+            }
+            final long take = Math.min(available, wanted);
+            if (shards.compareAndSet(index, current, pack(available - take, pending(current) + take))) {
+                return take;
+            }
+        }
+    }
+
+    // Like takeUpTo, but the tickets leave the counter instead of becoming pending
+    private long removeUpTo(final int stripe, final long wanted) {
+        final int index = stripe * PADDING;
+        while (true) {
+            final long current = shards.get(index);
+            final long available = available(current);
+            if (available <= 0) {
+                return 0;
+            }
+            final long take = Math.min(available, wanted);
+            if (shards.compareAndSet(index, current, pack(available - take, pending(current)))) {
+                return take;
+            }
+        }
+    }
+
+    // Returns tickets that were taken as pending; a debt on shard 0 is paid off first
+    private void give(final int stripe, final long tickets) {
+        if (tickets > 0) {
+            update(available(shards.get(0)) < 0 ? 0 : stripe, tickets, -tickets);
+        }
+    }
+
+    private void update(final int stripe, final long availableDelta, final long pendingDelta) {
+        final int index = stripe * PADDING;
+        long current;
+        do {
+            current = shards.get(index);
+        } while (!shards.compareAndSet(index, current,
+                pack(available(current) + availableDelta, pending(current) + pendingDelta)));
+    }
+
+    // High 32 bits: tickets left in the shard (negative for a debt), low 32 bits: tickets pending since the last drain
+    private static long pack(final long available, final long pending) {
+        return (available << 32) | (pending & 0xFFFFFFFFL);
+    }
+
+    private static long available(final long shard) {
+        return shard >> 32;
+    }
+
+    private static long pending(final long shard) {
+        return (int) shard;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.yan.inventoryservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "processed_order")
+public class ProcessedOrder implements Persistable<Long> {
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "ticket_count")
+    private Long ticketCount;
+
+    // False when there was not enough capacity and the order was rejected
+    @Column(name = "applied")
+    private boolean applied;
+
+    public ProcessedOrder(final Long orderId, final Long eventId, final Long ticketCount, final boolean applied) {
+        this.orderId = orderId;
+        this.eventId = eventId;
+        this.ticketCount = ticketCount;
+        this.applied = applied;
+    }
+
+    @Override
+    public Long getId() {
+        return orderId;
+    }
+
+    // Ids are assigned by orderservice and only ever inserted, so skip the select-before-merge
+    @Override
+    @Transient
+    public boolean isNew() {
+        return true;
+    }
+}
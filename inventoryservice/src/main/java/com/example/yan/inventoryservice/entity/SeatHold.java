@@ -0,0 +1,44 @@
+package com.example.yan.inventoryservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "seat_hold")
+public class SeatHold implements Persistable<String> {
+    @Id
+    private String id;
+
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "ticket_count")
+    private Long ticketCount;
+
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
+    public SeatHold(final String id, final Long eventId, final Long ticketCount, final Instant expiresAt) {
+        this.id = id;
+        this.eventId = eventId;
+        this.ticketCount = ticketCount;
+        this.expiresAt = expiresAt;
+    }
+
+    // Ids are random UUIDs and rows are never updated, only inserted and deleted
+    @Override
+    @Transient
+    public boolean isNew() {
+        return true;
+    }
+}
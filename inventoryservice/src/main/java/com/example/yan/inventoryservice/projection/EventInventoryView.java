@@ -0,0 +1,18 @@
+package com.example.yan.inventoryservice.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Flat row of an event joined with its venue, read in a single query without managed entities
+@Getter
+@AllArgsConstructor
+public class EventInventoryView {
+    private final Long eventId;
+    private final String eventName;
+    private final Long leftCapacity;
+    private final Double ticketPrice;
+    private final Long venueId;
+    private final String venueName;
+    private final String venueAddress;
+    private final Long venueTotalCapacity;
+}
@@ -1,9 +1,80 @@
 package com.example.yan.inventoryservice.repository;
 
 import com.example.yan.inventoryservice.entity.Event;
+import com.example.yan.inventoryservice.projection.EventInventoryView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface EventRepository extends JpaRepository<Event, Long> {
+    String INVENTORY_VIEW_QUERY = "SELECT new com.example.yan.inventoryservice.projection.EventInventoryView(" +
+            "e.id, e.name, e.leftCapacity, e.ticketPrice, v.id, v.name, v.address, v.totalCapacity) " +
+            "FROM Event e JOIN e.venue v ";
+
+    @Query(INVENTORY_VIEW_QUERY + "ORDER BY e.id")
+    List<EventInventoryView> findAllInventory();
+
+    @Query(INVENTORY_VIEW_QUERY + "WHERE e.id IN :eventIds")
+    List<EventInventoryView> findInventoryByIds(@Param("eventIds") Collection<Long> eventIds);
+
+    // Keyset pagination: seeks past the last id of the previous page instead of counting an offset
+    @Query(INVENTORY_VIEW_QUERY + "WHERE e.id > :afterId ORDER BY e.id")
+    List<EventInventoryView> findInventoryAfter(@Param("afterId") Long afterId, Limit limit);
+
+    // A fetch size of Integer.MIN_VALUE makes the MySQL driver stream rows instead of buffering the result set
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(INVENTORY_VIEW_QUERY + "ORDER BY e.id")
+    Stream<EventInventoryView> streamAllInventory();
+
+    // Single conditional UPDATE: returns 1 when the tickets were taken, 0 when the event
+    // does not exist or does not have enough capacity left. No row is read into memory.
+    // Tickets held for other customers are not available to a sale that does not bring its own holds.
+    default int decrementCapacity(final Long eventId, final Long ticketsBooked) {
+        return decrementCapacity(eventId, ticketsBooked, 0L);
+    }
+
+    // Sells tickets of which releasedHeld were held for this sale, releasing those in the same UPDATE
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE event SET left_capacity = left_capacity - :ticketsBooked, held_capacity = held_capacity - :releasedHeld " +
+            "WHERE id = :eventId AND left_capacity - held_capacity + :releasedHeld >= :ticketsBooked", nativeQuery = true)
+    int decrementCapacity(@Param("eventId") Long eventId, @Param("ticketsBooked") Long ticketsBooked,
+                          @Param("releasedHeld") Long releasedHeld);
+
+    @Query("SELECT e.leftCapacity FROM Event e WHERE e.id = :eventId")
+    Optional<Long> findLeftCapacityById(@Param("eventId") Long eventId);
+
+    // Holds tickets only if they fit next to what is already held, in one conditional UPDATE like
+    // decrementCapacity. Hot events pass their in-memory capacity, which is below the table's until flushed.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE event SET held_capacity = held_capacity + :tickets " +
+            "WHERE id = :eventId AND LEAST(left_capacity, :leftCapacity) - held_capacity >= :tickets", nativeQuery = true)
+    int holdCapacity(@Param("eventId") Long eventId, @Param("tickets") Long tickets, @Param("leftCapacity") long leftCapacity);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE event SET held_capacity = held_capacity - :tickets WHERE id = :eventId", nativeQuery = true)
+    int releaseHeldCapacity(@Param("eventId") Long eventId, @Param("tickets") Long tickets);
+
+    @Query(value = "SELECT held_capacity FROM event WHERE id = :eventId", nativeQuery = true)
+    Optional<Long> findHeldCapacityById(@Param("eventId") Long eventId);
+
+    // Capacity left according to the orders inventory applied rather than the counter column. Orders
+    // that are stored but not applied yet, or were rejected, do not count.
+    @Query(value = "SELECT e.total_capacity - COALESCE((SELECT SUM(p.ticket_count) FROM processed_order p " +
+            "WHERE p.event_id = e.id AND p.applied = TRUE), 0) FROM event e WHERE e.id = :eventId", nativeQuery = true)
+    long findCapacityLeftByAppliedOrders(@Param("eventId") Long eventId);
 }
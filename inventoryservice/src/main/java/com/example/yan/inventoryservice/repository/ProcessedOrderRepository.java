@@ -0,0 +1,17 @@
+package com.example.yan.inventoryservice.repository;
+
+import com.example.yan.inventoryservice.entity.ProcessedOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Set;
+
+@Repository
+public interface ProcessedOrderRepository extends JpaRepository<ProcessedOrder, Long> {
+
+    @Query("SELECT p.orderId FROM ProcessedOrder p WHERE p.orderId IN :orderIds")
+    Set<Long> findProcessedOrderIds(@Param("orderIds") Collection<Long> orderIds);
+}
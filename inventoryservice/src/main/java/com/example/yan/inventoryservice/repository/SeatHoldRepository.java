@@ -0,0 +1,37 @@
+package com.example.yan.inventoryservice.repository;
+
+import com.example.yan.inventoryservice.entity.SeatHold;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SeatHoldRepository extends JpaRepository<SeatHold, String> {
+    // Returns 1 for the one caller that removed the hold, 0 when it was already confirmed, released or
+    // expired elsewhere. Only that caller gives the held tickets back.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM SeatHold h WHERE h.id = :holdId")
+    int deleteHold(@Param("holdId") String holdId);
+
+    // Locks the holds being confirmed: a concurrent release or expiry waits, then finds them either
+    // deleted by the confirm or still there because the confirm failed
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM SeatHold h WHERE h.id IN :holdIds")
+    List<SeatHold> lockAllById(@Param("holdIds") Collection<String> holdIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM SeatHold h WHERE h.id IN :holdIds")
+    int deleteHolds(@Param("holdIds") Collection<String> holdIds);
+
+    @Query("SELECT h FROM SeatHold h WHERE h.expiresAt <= :now ORDER BY h.expiresAt")
+    List<SeatHold> findExpired(@Param("now") Instant now, Limit limit);
+}
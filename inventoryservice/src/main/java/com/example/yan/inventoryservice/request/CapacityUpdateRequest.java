@@ -0,0 +1,16 @@
+package com.example.yan.inventoryservice.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CapacityUpdateRequest {
+    private List<String> holdIds;
+}
@@ -0,0 +1,18 @@
+package com.example.yan.inventoryservice.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventInventoryPageResponse {
+    private List<EventInventoryResponse> events;
+    // Pass back as afterId to get the next page; null on the last page
+    private Long nextAfterId;
+}
@@ -0,0 +1,112 @@
+package com.example.yan.inventoryservice.service;
+
+import com.example.yan.inventoryservice.config.KafkaTopicConfig;
+import com.example.yan.inventoryservice.projection.EventInventoryView;
+import com.example.yan.inventoryservice.repository.EventRepository;
+import com.yan.eventcontract.event.CapacityChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Publishes the left capacity of changed events to the compacted inventory-capacity topic.
+// Changes are coalesced per event and sent on a short interval, so a burst of orders for one
+// event produces a single record carrying the latest value.
+@Service
+@Slf4j
+public class CapacityChangePublisher {
+    private static final int PUBLISH_BATCH_SIZE = 1000;
+
+    private final EventRepository eventRepository;
+    private final HotEventCapacityService hotEventCapacityService;
+    private final KafkaTemplate<String, CapacityChangedEvent> kafkaTemplate;
+    private final Set<Long> changedEventIds = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public CapacityChangePublisher(final EventRepository eventRepository,
+                                   final HotEventCapacityService hotEventCapacityService,
+                                   final KafkaTemplate<String, CapacityChangedEvent> kafkaTemplate) {
+        this.eventRepository = eventRepository;
+        this.hotEventCapacityService = hotEventCapacityService;
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    // Inside a transaction the change is only visible, and only published, once it commits
+    public void markChanged(final Long eventId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changedEventIds.add(eventId);
+                }
+            });
+        } else {
+            changedEventIds.add(eventId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.capacity-events.publish-interval-ms:100}")
+    public void publishChanges() {
+        final List<Long> eventIds = new ArrayList<>();
+        final Iterator<Long> iterator = changedEventIds.iterator();
+        while (iterator.hasNext() && eventIds.size() < PUBLISH_BATCH_SIZE) {
+            eventIds.add(iterator.next());
+            iterator.remove();
+        }
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        try {
+            eventRepository.findInventoryByIds(eventIds).forEach(this::publish);
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish capacity of {} events, retrying on the next run", eventIds.size(), e);
+            changedEventIds.addAll(eventIds);
+        }
+    }
+
+    // Seeds the topic with every event, so snapshots are complete even for events that never changed
+    @EventListener(ApplicationReadyEvent.class)
+    public void publishAll() {
+        long afterId = 0;
+        List<EventInventoryView> page;
+        do {
+            page = eventRepository.findInventoryAfter(afterId, Limit.of(PUBLISH_BATCH_SIZE));
+            page.forEach(this::publish);
+            if (!page.isEmpty()) {
+                afterId = page.getLast().getEventId();
+            }
+        } while (page.size() == PUBLISH_BATCH_SIZE);
+        log.info("Published capacity of all events up to id {}", afterId);
+    }
+
+    private void publish(final EventInventoryView event) {
+        final Long eventId = event.getEventId();
+        final CapacityChangedEvent capacityChangedEvent = CapacityChangedEvent.builder()
+                .eventId(eventId)
+                .leftCapacity(hotEventCapacityService.isHot(eventId)
+                        ? hotEventCapacityService.getLeftCapacity(eventId)
+                        : event.getLeftCapacity())
+                .ticketPrice(BigDecimal.valueOf(event.getTicketPrice()))
+                .build();
+        kafkaTemplate.send(KafkaTopicConfig.INVENTORY_CAPACITY_TOPIC, String.valueOf(eventId), capacityChangedEvent)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.warn("Failed to publish capacity of event id: {}", eventId, ex);
+                        changedEventIds.add(eventId);
+                    }
+                });
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.yan.inventoryservice.service;
+
+import com.example.yan.inventoryservice.counter.StripedCapacityCounter;
+import com.example.yan.inventoryservice.repository.EventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+@Slf4j
+public class HotEventCapacityService {
+    private static final String FLUSH_SQL =
+            "UPDATE event SET left_capacity = left_capacity - ? WHERE id = ? AND left_capacity >= ?";
+    // Tickets reserved in memory were sold; when the row has fewer left it goes to zero instead
+    private static final String CLAMPED_FLUSH_SQL =
+            "UPDATE event SET left_capacity = GREATEST(left_capacity - ?, 0) WHERE id = ?";
+
+    private final EventRepository eventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Set<Long> hotEventIds;
+    private final int stripes;
+    private final Map<Long, StripedCapacityCounter> counters = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Autowired
+    public HotEventCapacityService(final EventRepository eventRepository,
+                                   final JdbcTemplate jdbcTemplate,
+                                   @Value("${inventory.hot-events.ids:}") final Set<Long> hotEventIds,
+                                   @Value("${inventory.hot-events.stripes:16}") final int stripes) {
+        this.eventRepository = eventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.hotEventIds = Set.copyOf(hotEventIds);
+        this.stripes = stripes;
+    }
+
+    public boolean isHot(final Long eventId) {
+        return hotEventIds.contains(eventId);
+    }
+
+    // Leaves the tickets held for other customers in the counter
+    public boolean tryReserve(final Long eventId, final long tickets, final long held) {
+        final StripedCapacityCounter counter = counter(eventId);
+        if (!counter.tryAcquire(tickets, held)) {
+            return false;
+        }
+        // The counter is not transactional: give the tickets back if the surrounding transaction
+        // (e.g. recording the processed order) rolls back, so a redelivery does not take them twice
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(final int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        counter.release(tickets);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    public long getLeftCapacity(final Long eventId) {
+        return counter(eventId).available();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        hotEventIds.forEach(this::counter);
+    }
+
+    // Write-behind: everything reserved in memory since the last run goes to MySQL in one JDBC batch.
+    // Shutdown flushes too; only one drain may run at a time. A lock rather than synchronized, since the
+    // flush writes to MySQL on a virtual thread and a monitor would pin it on JDKs before 24.
+    @Scheduled(fixedDelayString = "${inventory.hot-events.flush-interval-ms:200}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        final List<Long> eventIds = new ArrayList<>();
+        final List<Object[]> batch = new ArrayList<>();
+        counters.forEach((eventId, counter) -> {
+            final long pending = counter.drainPending();
+            if (pending != 0) {
+                eventIds.add(eventId);
+                batch.add(new Object[]{pending, eventId, pending});
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        final int[] updated;
+        try {
+            updated = jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to flush hot event capacity, retrying on next run", e);
+            for (int i = 0; i < eventIds.size(); i++) {
+                counters.get(eventIds.get(i)).restorePending((Long) batch.get(i)[0]);
+            }
+            return;
+        }
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                try {
+                    resync(eventIds.get(i), (Long) batch.get(i)[0]);
+                } catch (RuntimeException e) {
+                    log.error("Failed to re-base hot event {}, retrying on next run", eventIds.get(i), e);
+                    counters.get(eventIds.get(i)).restorePending((Long) batch.get(i)[0]);
+                }
+            }
+        }
+        log.debug("Flushed capacity for {} hot events", eventIds.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // The row was changed outside of this service and has fewer tickets left than were just sold. The
+    // counter stays in place, since request threads may be reserving on it right now, and is re-based
+    // on the row instead, after the drained tickets have been written.
+    private void resync(final Long eventId, final long drained) {
+        jdbcTemplate.update(CLAMPED_FLUSH_SQL, drained, eventId);
+        final long leftCapacity = eventRepository.findLeftCapacityById(eventId)
+                .orElseThrow(() -> new RuntimeException("Event not found"));
+        counters.get(eventId).resetTo(leftCapacity);
+        log.error("Hot event {} capacity diverged from the database, re-based on {} tickets left", eventId, leftCapacity);
+    }
+
+    private StripedCapacityCounter counter(final Long eventId) {
+        return counters.computeIfAbsent(eventId, this::load);
+    }
+
+    // Reservations made after the last flush are lost on a crash, but each of them was recorded as an
+    // applied order in the same transaction. Rebuild from whichever is lower: the table, or total capacity
+    // minus every ticket inventory applied.
+    private StripedCapacityCounter load(final Long eventId) {
+        final Long leftCapacity = eventRepository.findLeftCapacityById(eventId)
+                .orElseThrow(() -> new RuntimeException("Event not found"));
+        final long fromOrders = Math.max(eventRepository.findCapacityLeftByAppliedOrders(eventId), 0);
+        final long capacity = Math.min(leftCapacity, fromOrders);
+        if (capacity < leftCapacity) {
+            jdbcTemplate.update(FLUSH_SQL, leftCapacity - capacity, eventId, leftCapacity - capacity);
+            log.warn("Recovered {} unflushed tickets for hot event {}", leftCapacity - capacity, eventId);
+        }
+        log.info("Loaded hot event {} with capacity {} across {} stripes", eventId, capacity, stripes);
+        return new StripedCapacityCounter(capacity, stripes);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.yan.inventoryservice.service;
+
+// No event or venue with the requested id; answered with 404 by InventoryExceptionHandler
+public class InventoryNotFoundException extends RuntimeException {
+    public InventoryNotFoundException(final String type, final Long id) {
+        super(type + " " + id + " not found");
+    }
+}
@@ -1,46 +1,189 @@
 package com.example.yan.inventoryservice.service;
 
+import com.example.yan.inventoryservice.config.CacheConfig;
 import com.example.yan.inventoryservice.entity.Event;
 import com.example.yan.inventoryservice.entity.Venue;
+import com.example.yan.inventoryservice.projection.EventInventoryView;
 import com.example.yan.inventoryservice.repository.EventRepository;
 import com.example.yan.inventoryservice.repository.VenueRepository;
+import com.example.yan.inventoryservice.response.EventInventoryPageResponse;
 import com.example.yan.inventoryservice.response.EventInventoryResponse;
 import com.example.yan.inventoryservice.response.VenueInventoryResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class InventoryService {
+    private static final int STREAM_FLUSH_ROWS = 500;
 
     private final EventRepository eventRepository;
     private final VenueRepository venueRepository;
+    private final HotEventCapacityService hotEventCapacityService;
+    private final CapacityChangePublisher capacityChangePublisher;
+    private final Cache eventInventoryCache;
+    private final Cache venueInventoryCache;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public InventoryService(final EventRepository eventRepository, final VenueRepository venueRepository){
+    public InventoryService(final EventRepository eventRepository,
+                            final VenueRepository venueRepository,
+                            final HotEventCapacityService hotEventCapacityService,
+                            final CapacityChangePublisher capacityChangePublisher,
+                            final CacheManager cacheManager,
+                            final ObjectMapper objectMapper){
         this.eventRepository = eventRepository;
         this.venueRepository = venueRepository;
+        this.hotEventCapacityService = hotEventCapacityService;
+        this.capacityChangePublisher = capacityChangePublisher;
+        this.objectMapper = objectMapper;
+        // Evictions are deferred until the capacity update commits, so a concurrent read cannot re-cache the old value
+        this.eventInventoryCache = new TransactionAwareCacheDecorator(cacheManager.getCache(CacheConfig.EVENT_INVENTORY_CACHE));
+        this.venueInventoryCache = cacheManager.getCache(CacheConfig.VENUE_INVENTORY_CACHE);
     }
 
     public List<EventInventoryResponse> getAllEvents(){
-        final List<Event> events = eventRepository.findAll();
+        final List<EventInventoryView> events = eventRepository.findAllInventory();
 
-        return events.stream().map(event-> EventInventoryResponse.builder()
-                .eventId(event.getId())
-                .event(event.getName())
-                .capacity(event.getLeftCapacity())
-                .venue(event.getVenue())
-                .ticketPrice(BigDecimal.valueOf(event.getTicketPrice()))
-                .build()).collect(Collectors.toList());
+        return events.stream().map(this::toEventInventoryResponse).collect(Collectors.toList());
+    }
+
+    public List<EventInventoryResponse> getEventsInventory(final Collection<Long> eventIds){
+        final List<EventInventoryView> events = eventRepository.findInventoryByIds(eventIds);
+
+        return events.stream().map(this::toEventInventoryResponse).collect(Collectors.toList());
+    }
+
+    public EventInventoryPageResponse getEventsPage(final Long afterId, final int size){
+        final List<EventInventoryView> events = eventRepository.findInventoryAfter(afterId, Limit.of(size));
+
+        return EventInventoryPageResponse.builder()
+                .events(events.stream().map(this::toEventInventoryResponse).collect(Collectors.toList()))
+                .nextAfterId(events.size() < size ? null : events.getLast().getEventId())
+                .build();
+    }
+
+    // Writes every event as newline-delimited JSON straight from a streaming cursor, one row in memory at a time
+    @Transactional(readOnly = true)
+    public void writeAllEvents(final OutputStream outputStream) throws IOException {
+        try (Stream<EventInventoryView> events = eventRepository.streamAllInventory();
+             SequenceWriter writer = objectMapper.writerFor(EventInventoryResponse.class)
+                     .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                     .withRootValueSeparator("\n")
+                     .writeValues(outputStream)) {
+            final Iterator<EventInventoryView> iterator = events.iterator();
+            for (int written = 1; iterator.hasNext(); written++) {
+                writer.write(toEventInventoryResponse(iterator.next()));
+                if(written % STREAM_FLUSH_ROWS == 0){
+                    writer.flush();
+                }
+            }
+            // The separator only goes between values; end the last line too
+            outputStream.write('\n');
+        }
     }
 
     public VenueInventoryResponse getVenueInformation(final Long venueId) {
-        final Venue venue = venueRepository.findById(venueId).orElse(null);
+        return cached(venueInventoryCache, venueId, () -> loadVenueInformation(venueId));
+    }
+
+    public EventInventoryResponse getEventInventory(final Long eventId){
+        final EventInventoryResponse cached = cached(eventInventoryCache, eventId, () -> loadEventInventory(eventId));
+        if(!hotEventCapacityService.isHot(eventId)){
+            return cached;
+        }
+        // Hot events change on every booking; their capacity always comes from the in-memory counter
+        return EventInventoryResponse.builder()
+                .eventId(cached.getEventId())
+                .event(cached.getEvent())
+                .capacity(hotEventCapacityService.getLeftCapacity(eventId))
+                .venue(cached.getVenue())
+                .ticketPrice(cached.getTicketPrice())
+                .build();
+    }
+
+    public long getLeftCapacity(final Long eventId){
+        if(hotEventCapacityService.isHot(eventId)){
+            return hotEventCapacityService.getLeftCapacity(eventId);
+        }
+        return eventRepository.findLeftCapacityById(eventId)
+                .orElseThrow(() -> new InventoryNotFoundException("Event", eventId));
+    }
+
+    @Transactional
+    public boolean updateEventCapacity(final Long eventId, final Long ticketsBooked) {
+        return updateEventCapacity(eventId, ticketsBooked, 0L);
+    }
+
+    // releasedHeld of the tickets booked were held for this sale and are released with it; tickets
+    // held for anyone else are never sold
+    @Transactional
+    public boolean updateEventCapacity(final Long eventId, final Long ticketsBooked, final long releasedHeld) {
+        if(ticketsBooked == null || ticketsBooked <= 0){
+            throw new IllegalArgumentException("Tickets booked must be positive");
+        }
+        // Hot events are reserved in memory and written behind; the rest decrement in the database
+        // only if enough capacity is left, so concurrent orders can never oversell
+        final boolean updated = hotEventCapacityService.isHot(eventId)
+                ? reserveHot(eventId, ticketsBooked, releasedHeld)
+                : eventRepository.decrementCapacity(eventId, ticketsBooked, releasedHeld) == 1;
+        if(!updated){
+            log.warn("Rejected capacity update for event id: {} with tickets booked: {}", eventId, ticketsBooked);
+            return false;
+        }
+        if(!hotEventCapacityService.isHot(eventId)){
+            eventInventoryCache.evict(eventId);
+        }
+        capacityChangePublisher.markChanged(eventId);
+        log.info("Updated event capacity for event id: {} with tickets booked: {}", eventId, ticketsBooked);
+        return true;
+    }
+
+    private boolean reserveHot(final Long eventId, final Long ticketsBooked, final long releasedHeld) {
+        final long heldForOthers = eventRepository.findHeldCapacityById(eventId).orElse(0L) - releasedHeld;
+        if(!hotEventCapacityService.tryReserve(eventId, ticketsBooked, heldForOthers)){
+            return false;
+        }
+        if(releasedHeld > 0){
+            eventRepository.releaseHeldCapacity(eventId, releasedHeld);
+        }
+        return true;
+    }
+
+    // Unknown ids are not cached: the loader throws, and the cache hands that back wrapped
+    private static <T> T cached(final Cache cache, final Long id, final Callable<T> loader) {
+        try {
+            return cache.get(id, loader);
+        } catch (Cache.ValueRetrievalException e) {
+            if(e.getCause() instanceof InventoryNotFoundException notFound){
+                throw notFound;
+            }
+            throw e;
+        }
+    }
+
+    private VenueInventoryResponse loadVenueInformation(final Long venueId) {
+        final Venue venue = venueRepository.findById(venueId)
+                .orElseThrow(() -> new InventoryNotFoundException("Venue", venueId));
 
         return VenueInventoryResponse.builder()
                 .venueId(venue.getId())
@@ -49,21 +192,35 @@ public class InventoryService {
                 .build();
     }
 
-    public EventInventoryResponse getEventInventory(final Long eventId){
-        final Event event = eventRepository.findById(eventId).orElse(null);
+    private EventInventoryResponse loadEventInventory(final Long eventId){
+        final Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new InventoryNotFoundException("Event", eventId));
 
         return EventInventoryResponse.builder()
+                .eventId(event.getId())
                 .event(event.getName())
-                .capacity(event.getLeftCapacity())
+                .capacity(leftCapacity(event))
                 .venue(event.getVenue())
                 .ticketPrice(BigDecimal.valueOf(event.getTicketPrice()))
                 .build();
     }
 
-    public void updateEventCapacity(final Long eventId, final Long ticketsBooked) {
-        final Event event = eventRepository.findById(eventId).orElse(null);
-        event.setLeftCapacity(event.getLeftCapacity() - ticketsBooked);
-        eventRepository.saveAndFlush(event);
-        log.info("Updated event capacity for event id: {} with tickets booked: {}", eventId, ticketsBooked);
+    private EventInventoryResponse toEventInventoryResponse(final EventInventoryView event){
+        final Long capacity = hotEventCapacityService.isHot(event.getEventId())
+                ? hotEventCapacityService.getLeftCapacity(event.getEventId())
+                : event.getLeftCapacity();
+        return EventInventoryResponse.builder()
+                .eventId(event.getEventId())
+                .event(event.getEventName())
+                .capacity(capacity)
+                .venue(new Venue(event.getVenueId(), event.getVenueName(), event.getVenueAddress(), event.getVenueTotalCapacity()))
+                .ticketPrice(BigDecimal.valueOf(event.getTicketPrice()))
+                .build();
+    }
+
+    private Long leftCapacity(final Event event){
+        return hotEventCapacityService.isHot(event.getId())
+                ? hotEventCapacityService.getLeftCapacity(event.getId())
+                : event.getLeftCapacity();
     }
 }
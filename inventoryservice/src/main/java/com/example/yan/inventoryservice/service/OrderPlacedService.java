@@ -0,0 +1,112 @@
+package com.example.yan.inventoryservice.service;
+
+import com.example.yan.inventoryservice.entity.ProcessedOrder;
+import com.example.yan.inventoryservice.repository.ProcessedOrderRepository;
+import com.yan.eventcontract.event.OrderPlacedEvent;
+import com.yan.eventcontract.event.OrderRejectedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class OrderPlacedService {
+    private final InventoryService inventoryService;
+    private final SeatHoldService seatHoldService;
+    private final ProcessedOrderRepository processedOrderRepository;
+    private final OrderRejectionPublisher orderRejectionPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer batchTimer;
+
+    @Autowired
+    public OrderPlacedService(final InventoryService inventoryService,
+                              final SeatHoldService seatHoldService,
+                              final ProcessedOrderRepository processedOrderRepository,
+                              final OrderRejectionPublisher orderRejectionPublisher,
+                              final TransactionTemplate transactionTemplate,
+                              final MeterRegistry meterRegistry) {
+        this.inventoryService = inventoryService;
+        this.seatHoldService = seatHoldService;
+        this.processedOrderRepository = processedOrderRepository;
+        this.orderRejectionPublisher = orderRejectionPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.batchTimer = Timer.builder("inventory.order.batch.process")
+                .description("Time to apply a batch of placed orders to the event capacities")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // The processed order ids and the decrements are written in the same transaction,
+    // so a redelivered order is either fully applied already or not at all
+    @KafkaListener(topics = "order-placed", groupId = "inventory-service", batch = "true",
+            concurrency = "${inventory.order-placed.concurrency:3}")
+    public void orderPlacedEvents(final List<OrderPlacedEvent> orderPlacedEvents) {
+        log.info("Received {} order placed events", orderPlacedEvents.size());
+        batchTimer.record(() -> transactionTemplate.executeWithoutResult(status -> applyOrders(orderPlacedEvents)));
+    }
+
+    private void applyOrders(final List<OrderPlacedEvent> orderPlacedEvents) {
+        // Records the deserializer could not decode arrive as null and are skipped
+        final Map<Long, OrderPlacedEvent> ordersById = orderPlacedEvents.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(OrderPlacedEvent::getOrderId, Function.identity(), (first, duplicate) -> first, LinkedHashMap::new));
+        final Set<Long> processed = processedOrderRepository.findProcessedOrderIds(ordersById.keySet());
+        final List<OrderPlacedEvent> newOrders = ordersById.values().stream()
+                .filter(order -> !processed.contains(order.getOrderId()))
+                .toList();
+        if (newOrders.isEmpty()) {
+            log.info("Skipped {} already processed orders", orderPlacedEvents.size());
+            return;
+        }
+        // Decrement once per event with the tickets of every order in the batch
+        final Set<Long> rejectedOrderIds = new HashSet<>();
+        newOrders.stream()
+                .collect(Collectors.groupingBy(OrderPlacedEvent::getEventId, LinkedHashMap::new, Collectors.toList()))
+                .forEach((eventId, orders) -> updateEventCapacity(eventId, orders, rejectedOrderIds));
+        // What was applied is what hot event counters are rebuilt from after a restart
+        processedOrderRepository.saveAll(newOrders.stream()
+                .map(order -> new ProcessedOrder(order.getOrderId(), order.getEventId(), order.getTicketCount(),
+                        !rejectedOrderIds.contains(order.getOrderId())))
+                .toList());
+        // Rejected orders would otherwise stay in orderservice looking sold
+        if (!rejectedOrderIds.isEmpty()) {
+            orderRejectionPublisher.publish(newOrders.stream()
+                    .filter(order -> rejectedOrderIds.contains(order.getOrderId()))
+                    .map(order -> new OrderRejectedEvent(order.getOrderId(), order.getEventId(), order.getTicketCount()))
+                    .toList());
+        }
+        log.info("Applied {} orders, rejected {}, skipped {} duplicates", newOrders.size() - rejectedOrderIds.size(),
+                rejectedOrderIds.size(), orderPlacedEvents.size() - newOrders.size());
+    }
+
+    private void updateEventCapacity(final Long eventId, final List<OrderPlacedEvent> orders, final Set<Long> rejectedOrderIds) {
+        final long ticketCount = orders.stream().mapToLong(OrderPlacedEvent::getTicketCount).sum();
+        final List<String> holdIds = orders.stream().map(OrderPlacedEvent::getHoldId).filter(Objects::nonNull).toList();
+        final boolean updated = holdIds.isEmpty()
+                ? inventoryService.updateEventCapacity(eventId, ticketCount)
+                : seatHoldService.confirm(eventId, ticketCount, holdIds);
+        if (updated) {
+            return;
+        }
+        if (orders.size() == 1) {
+            log.warn("Inventory rejected order {} for event id: {} with tickets: {}", orders.getFirst().getOrderId(), eventId, ticketCount);
+            rejectedOrderIds.add(orders.getFirst().getOrderId());
+            return;
+        }
+        // Not enough capacity for the whole batch; apply the orders one by one so the ones that fit still go through
+        orders.forEach(order -> updateEventCapacity(eventId, List.of(order), rejectedOrderIds));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.yan.inventoryservice.service;
+
+import com.example.yan.inventoryservice.config.KafkaTopicConfig;
+import com.yan.eventcontract.event.OrderRejectedEvent;
+import com.yan.eventcontract.serialization.OrderRejectedEventSerializer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Tells orderservice which orders inventory could not apply; the order table and its status belong to orderservice.
+// The auto-configured template serializes capacity changes, so rejections get their own on the same producer settings.
+@Service
+@Slf4j
+public class OrderRejectionPublisher {
+    private final KafkaTemplate<String, OrderRejectedEvent> kafkaTemplate;
+
+    @Autowired
+    public OrderRejectionPublisher(final ProducerFactory<String, OrderRejectedEvent> producerFactory) {
+        this.kafkaTemplate = new KafkaTemplate<>(producerFactory,
+                Map.of(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, OrderRejectedEventSerializer.class));
+        this.kafkaTemplate.setObservationEnabled(true);
+    }
+
+    // Keyed by order id. Blocks until the broker acknowledged every rejection, so a failure rolls back
+    // the caller's transaction and the orders are processed, and rejected, again on redelivery.
+    public void publish(final List<OrderRejectedEvent> rejections) {
+        final List<CompletableFuture<?>> sends = rejections.stream()
+                .<CompletableFuture<?>>map(rejection -> kafkaTemplate.send(KafkaTopicConfig.ORDER_REJECTED_TOPIC,
+                        String.valueOf(rejection.getOrderId()), rejection))
+                .toList();
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+        log.info("Published {} order rejections", rejections.size());
+    }
+}
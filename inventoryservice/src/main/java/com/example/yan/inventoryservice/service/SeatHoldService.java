@@ -0,0 +1,191 @@
+package com.example.yan.inventoryservice.service;
+
+import com.example.yan.inventoryservice.entity.SeatHold;
+import com.example.yan.inventoryservice.repository.EventRepository;
+import com.example.yan.inventoryservice.repository.SeatHoldRepository;
+import com.example.yan.inventoryservice.request.SeatHoldRequest;
+import com.example.yan.inventoryservice.response.SeatHoldResponse;
+import com.example.yan.inventoryservice.scheduler.HashedTimingWheel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Holds are rows in seat_hold and their tickets are counted in event.held_capacity, so a hold made on
+// one instance can be released, expired or confirmed on any other. The instance that made a hold also
+// schedules its expiry on the timing wheel; holds whose instance went away are expired by the sweep.
+@Service
+@Slf4j
+public class SeatHoldService {
+    private final InventoryService inventoryService;
+    private final EventRepository eventRepository;
+    private final SeatHoldRepository seatHoldRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final HashedTimingWheel timingWheel;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final int sweepBatchSize;
+    private final Map<String, HashedTimingWheel.Timeout> timeouts = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SeatHoldService(final InventoryService inventoryService,
+                           final EventRepository eventRepository,
+                           final SeatHoldRepository seatHoldRepository,
+                           final TransactionTemplate transactionTemplate,
+                           @Value("${inventory.holds.tick-ms:100}") final long tickMillis,
+                           @Value("${inventory.holds.wheel-size:512}") final int wheelSize,
+                           @Value("${inventory.holds.default-ttl-seconds:300}") final long defaultTtlSeconds,
+                           @Value("${inventory.holds.max-ttl-seconds:900}") final long maxTtlSeconds,
+                           @Value("${inventory.holds.sweep-batch-size:500}") final int sweepBatchSize) {
+        this.inventoryService = inventoryService;
+        this.eventRepository = eventRepository;
+        this.seatHoldRepository = seatHoldRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.timingWheel = new HashedTimingWheel(Duration.ofMillis(tickMillis), wheelSize,
+                Thread.ofPlatform().name("seat-hold-expiry").daemon().factory());
+        this.defaultTtl = Duration.ofSeconds(defaultTtlSeconds);
+        this.maxTtl = Duration.ofSeconds(maxTtlSeconds);
+        this.sweepBatchSize = sweepBatchSize;
+    }
+
+    public Optional<SeatHoldResponse> createHold(final Long eventId, final Long ticketCount, final Long ttlSeconds) {
+        if(ticketCount == null || ticketCount <= 0){
+            throw new IllegalArgumentException("Ticket count must be positive");
+        }
+        final Duration ttl = ttlSeconds == null ? defaultTtl : Duration.ofSeconds(Math.min(ttlSeconds, maxTtl.toSeconds()));
+        // Reserve against the capacity left minus what is already held. Capacity is read once: if an
+        // order is confirmed meanwhile the hold may over-reserve, but the confirming decrement is
+        // conditional, so that can never turn into an oversell.
+        final long leftCapacity = inventoryService.getLeftCapacity(eventId);
+        final SeatHold hold = new SeatHold(UUID.randomUUID().toString(), eventId, ticketCount, Instant.now().plus(ttl));
+        final boolean held = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if(eventRepository.holdCapacity(eventId, ticketCount, leftCapacity) == 0){
+                return false;
+            }
+            seatHoldRepository.save(hold);
+            return true;
+        }));
+        if(!held){
+            log.info("Rejected hold for event id: {} with tickets: {}, left: {}", eventId, ticketCount, leftCapacity);
+            return Optional.empty();
+        }
+        // The expiry does database work, so it runs on its own virtual thread rather than the wheel's
+        timeouts.put(hold.getId(), timingWheel.schedule(
+                () -> Thread.ofVirtual().name("seat-hold-expire").start(() -> expire(hold.getId())), ttl));
+        log.info("Created hold {} for event id: {} with tickets: {}", hold.getId(), eventId, ticketCount);
+        return Optional.of(toResponse(hold));
+    }
+
+    // All or nothing: either every request is held, or the holds taken so far are released again
+    public Optional<List<SeatHoldResponse>> createHolds(final List<SeatHoldRequest> requests, final Long ttlSeconds) {
+        final List<SeatHoldResponse> created = new ArrayList<>(requests.size());
+        try {
+            for (SeatHoldRequest request : requests) {
+                final Optional<SeatHoldResponse> hold = createHold(request.getEventId(), request.getTicketCount(), ttlSeconds);
+                if(hold.isEmpty()){
+                    created.forEach(response -> release(response.getHoldId()));
+                    return Optional.empty();
+                }
+                created.add(hold.get());
+            }
+        } catch (RuntimeException e) {
+            created.forEach(response -> release(response.getHoldId()));
+            throw e;
+        }
+        return Optional.of(created);
+    }
+
+    // Turns holds into sold tickets. The capacity is decremented and the held tickets released in one
+    // conditional update, and the hold rows are only deleted once that succeeded, all in one transaction
+    // that joins the caller's if there is one. A confirm that does not fit leaves the holds as they were.
+    // Holds that already expired fall back to a plain conditional decrement.
+    public boolean confirm(final Long eventId, final Long ticketCount, final List<String> holdIds) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            final List<SeatHold> holds = seatHoldRepository.lockAllById(holdIds).stream()
+                    .filter(hold -> hold.getEventId().equals(eventId))
+                    .toList();
+            final long released = holds.stream().mapToLong(SeatHold::getTicketCount).sum();
+            if(!inventoryService.updateEventCapacity(eventId, ticketCount, released)){
+                return false;
+            }
+            if(!holds.isEmpty()){
+                seatHoldRepository.deleteHolds(holds.stream().map(SeatHold::getId).toList());
+                holds.forEach(hold -> cancelTimeout(hold.getId()));
+            }
+            return true;
+        }));
+    }
+
+    public boolean release(final String holdId) {
+        final Optional<SeatHold> hold = remove(holdId);
+        hold.ifPresent(released -> log.info("Released hold {} for event id: {}", holdId, released.getEventId()));
+        return hold.isPresent();
+    }
+
+    public long getHeldTickets(final Long eventId) {
+        return eventRepository.findHeldCapacityById(eventId).orElse(0L);
+    }
+
+    // Expires holds that no timing wheel is going to, because the instance that made them stopped or
+    // crashed. Every instance sweeps; deleting the row decides which of them gives the tickets back.
+    @Scheduled(fixedDelayString = "${inventory.holds.sweep-interval-ms:5000}")
+    public void sweepExpired() {
+        seatHoldRepository.findExpired(Instant.now(), Limit.of(sweepBatchSize))
+                .forEach(hold -> expire(hold.getId()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timingWheel.close();
+    }
+
+    private void expire(final String holdId) {
+        try {
+            remove(holdId).ifPresent(hold -> log.info("Hold {} expired for event id: {}", holdId, hold.getEventId()));
+        } catch (RuntimeException e) {
+            // Left in the table; the next sweep retries it
+            log.warn("Failed to expire hold {}", holdId, e);
+        }
+    }
+
+    // Whoever deletes the row owns the hold and is the only one to give its tickets back
+    private Optional<SeatHold> remove(final String holdId) {
+        cancelTimeout(holdId);
+        return transactionTemplate.execute(status -> seatHoldRepository.findById(holdId)
+                .filter(hold -> seatHoldRepository.deleteHold(holdId) == 1)
+                .map(hold -> {
+                    eventRepository.releaseHeldCapacity(hold.getEventId(), hold.getTicketCount());
+                    return hold;
+                }));
+    }
+
+    // Cancelling only frees the wheel slot early; an expiry that fires anyway finds the row gone
+    private void cancelTimeout(final String holdId) {
+        final HashedTimingWheel.Timeout timeout = timeouts.remove(holdId);
+        if(timeout != null){
+            timeout.cancel();
+        }
+    }
+
+    private SeatHoldResponse toResponse(final SeatHold hold) {
+        return SeatHoldResponse.builder()
+                .holdId(hold.getId())
+                .eventId(hold.getEventId())
+                .ticketCount(hold.getTicketCount())
+                .expiresAt(hold.getExpiresAt())
+                .build();
+    }
+}
@@ -0,0 +1,11 @@
+-- Responses of bookings made with an Idempotency-Key header; replays within the TTL return the stored response
+CREATE TABLE booking_idempotency (
+    idempotency_key VARCHAR(64) PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    event_id BIGINT NOT NULL,
+    ticket_count BIGINT NOT NULL,
+    total_price DECIMAL(10, 2) NOT NULL,
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    expires_at TIMESTAMP(3) NOT NULL,
+    INDEX idx_booking_idempotency_expires_at (expires_at)
+);
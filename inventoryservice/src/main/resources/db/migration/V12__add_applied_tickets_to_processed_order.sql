@@ -0,0 +1,7 @@
+-- What each processed order did to capacity, so hot event counters can be rebuilt from the orders
+-- inventory actually applied. Rows written before this have no event and are left out of the sum.
+ALTER TABLE processed_order ADD COLUMN event_id BIGINT NULL;
+ALTER TABLE processed_order ADD COLUMN ticket_count BIGINT NULL;
+ALTER TABLE processed_order ADD COLUMN applied BOOLEAN NOT NULL DEFAULT TRUE;
+
+CREATE INDEX idx_processed_order_event_id ON processed_order (event_id);
@@ -0,0 +1,6 @@
+-- Outbox row id of the booking an order was created from. Order Service looks it up to skip bookings
+-- the at-least-once relay delivered again; NULL for bookings published before it was carried
+ALTER TABLE `order`
+ADD COLUMN booking_id BIGINT NULL;
+
+CREATE UNIQUE INDEX uk_order_booking_id ON `order` (booking_id);
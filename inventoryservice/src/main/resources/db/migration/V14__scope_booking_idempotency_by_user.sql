@@ -0,0 +1,6 @@
+-- Idempotency keys are chosen by clients, so they are only unique per customer
+ALTER TABLE booking_idempotency
+DROP PRIMARY KEY;
+
+ALTER TABLE booking_idempotency
+ADD PRIMARY KEY (user_id, idempotency_key);
@@ -0,0 +1,12 @@
+-- Seat holds live in the database so any inventory instance can release, expire or confirm them.
+-- held_capacity is the sum of the event's open holds and is only changed by conditional updates.
+CREATE TABLE seat_hold (
+    id VARCHAR(36) NOT NULL PRIMARY KEY,
+    event_id BIGINT NOT NULL,
+    ticket_count BIGINT NOT NULL,
+    expires_at TIMESTAMP(3) NOT NULL
+);
+
+CREATE INDEX idx_seat_hold_expires_at ON seat_hold (expires_at);
+
+ALTER TABLE event ADD COLUMN held_capacity BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+-- A batch booking stores one row per item under its key; single bookings are item 0
+ALTER TABLE booking_idempotency
+ADD COLUMN item INT NOT NULL DEFAULT 0;
+
+ALTER TABLE booking_idempotency
+DROP PRIMARY KEY;
+
+ALTER TABLE booking_idempotency
+ADD PRIMARY KEY (user_id, idempotency_key, item);
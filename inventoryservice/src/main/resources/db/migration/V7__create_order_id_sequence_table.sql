@@ -0,0 +1,8 @@
+-- Table-backed sequence for order ids (MySQL has no sequences). Hibernate hands out ids in blocks
+-- of 50 from it, which lets order inserts be JDBC-batched unlike AUTO_INCREMENT identity ids.
+CREATE TABLE order_seq (
+    next_val BIGINT NOT NULL
+);
+
+INSERT INTO order_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 51 FROM `order`;
@@ -0,0 +1,5 @@
+-- Orders whose capacity decrement has been applied; makes redelivered order placed events no-ops
+CREATE TABLE processed_order (
+    order_id BIGINT PRIMARY KEY,
+    processed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,10 @@
+-- Bookings waiting to be published to the booking topic by the bookingservice outbox relay
+CREATE TABLE booking_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    event_id BIGINT NOT NULL,
+    ticket_count BIGINT NOT NULL,
+    total_price DECIMAL(10, 2) NOT NULL,
+    hold_id VARCHAR(36),
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+);
@@ -0,0 +1,60 @@
+package com.example.yan.inventoryservice.controller;
+
+import com.example.yan.inventoryservice.config.CacheConfig;
+import com.example.yan.inventoryservice.repository.EventRepository;
+import com.example.yan.inventoryservice.repository.VenueRepository;
+import com.example.yan.inventoryservice.service.CapacityChangePublisher;
+import com.example.yan.inventoryservice.service.HotEventCapacityService;
+import com.example.yan.inventoryservice.service.InventoryService;
+import com.example.yan.inventoryservice.service.SeatHoldService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class InventoryControllerTest {
+    private final EventRepository eventRepository = mock(EventRepository.class);
+    private final VenueRepository venueRepository = mock(VenueRepository.class);
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        final InventoryService inventoryService = new InventoryService(eventRepository, venueRepository,
+                mock(HotEventCapacityService.class), mock(CapacityChangePublisher.class),
+                new CaffeineCacheManager(CacheConfig.EVENT_INVENTORY_CACHE, CacheConfig.VENUE_INVENTORY_CACHE),
+                new ObjectMapper());
+        mockMvc = MockMvcBuilders.standaloneSetup(new InventoryController(inventoryService, mock(SeatHoldService.class)))
+                .setControllerAdvice(new InventoryExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void unknownEventIsNotFoundAndNotCached() throws Exception {
+        when(eventRepository.findById(99L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/inventory/event/99")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/inventory/event/99")).andExpect(status().isNotFound());
+
+        // An event created after the first miss is found on the next request
+        verify(eventRepository, times(2)).findById(99L);
+    }
+
+    @Test
+    void unknownVenueIsNotFound() throws Exception {
+        when(venueRepository.findById(99L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/inventory/venue/99")).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.yan.inventoryservice.counter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedCapacityCounterTest {
+
+    @Test
+    void neverGrantsMoreThanCapacity() throws InterruptedException {
+        final StripedCapacityCounter counter = new StripedCapacityCounter(10_000, 16);
+        final AtomicLong granted = new AtomicLong();
+        final int threads = 256;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            final long tickets = t % 4 + 1;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    if (counter.tryAcquire(tickets)) {
+                        granted.addAndGet(tickets);
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(10_000, granted.get() + counter.available());
+        assertEquals(granted.get(), counter.drainPending());
+    }
+
+    @Test
+    void collectsReservationAcrossStripes() {
+        final StripedCapacityCounter counter = new StripedCapacityCounter(10, 4);
+
+        assertTrue(counter.tryAcquire(9));
+        assertFalse(counter.tryAcquire(2));
+        assertTrue(counter.tryAcquire(1));
+        assertEquals(0, counter.available());
+        assertEquals(10, counter.drainPending());
+        assertEquals(0, counter.drainPending());
+    }
+
+    @Test
+    void resetDuringReservationsLosesNothing() throws InterruptedException {
+        final StripedCapacityCounter counter = new StripedCapacityCounter(100_000, 16);
+        final AtomicLong granted = new AtomicLong();
+        final int threads = 64;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1_000; i++) {
+                    if (counter.tryAcquire(1)) {
+                        granted.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        // What the flush does: write the drained tickets behind, then re-base the counter on the table
+        long persisted = 100_000;
+        long drained = 0;
+        while (!executor.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+            final long pending = counter.drainPending();
+            drained += pending;
+            persisted -= pending;
+            counter.resetTo(persisted);
+        }
+        drained += counter.drainPending();
+
+        assertEquals(granted.get(), drained);
+        assertEquals(100_000 - granted.get(), counter.available());
+    }
+
+    @Test
+    void resetFollowsCapacityChangedOutside() {
+        final StripedCapacityCounter counter = new StripedCapacityCounter(100, 4);
+        assertTrue(counter.tryAcquire(10));
+
+        // The table went from 100 to 80 although only 10 were flushed: 10 were taken elsewhere
+        counter.resetTo(90 - 10);
+
+        assertEquals(70, counter.available());
+        assertEquals(10, counter.drainPending());
+        assertFalse(counter.tryAcquire(71));
+        assertTrue(counter.tryAcquire(70));
+    }
+
+    @Test
+    void resetBelowPendingLeavesDebt() {
+        final StripedCapacityCounter counter = new StripedCapacityCounter(10, 4);
+        assertTrue(counter.tryAcquire(8));
+
+        counter.resetTo(5);
+        counter.release(2);
+
+        assertEquals(0, counter.available());
+        assertFalse(counter.tryAcquire(1));
+        assertEquals(6, counter.drainPending());
+    }
+
+    @Test
+    void acquireLeavesReservedTicketsAvailable() {
+        final StripedCapacityCounter counter = new StripedCapacityCounter(10, 4);
+
+        assertFalse(counter.tryAcquire(7, 4));
+        assertEquals(10, counter.available());
+        assertTrue(counter.tryAcquire(6, 4));
+        assertFalse(counter.tryAcquire(1, 4));
+        assertTrue(counter.tryAcquire(4, 0));
+    }
+}
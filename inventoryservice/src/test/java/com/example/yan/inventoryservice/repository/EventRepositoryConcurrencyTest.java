@@ -0,0 +1,131 @@
+package com.example.yan.inventoryservice.repository;
+
+import com.example.yan.inventoryservice.entity.Event;
+import com.example.yan.inventoryservice.entity.Venue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.Callable;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the Flyway migrations on H2 in MySQL mode and lets a few hundred threads decrement one event at once
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:inventory;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EventRepositoryConcurrencyTest {
+    private static final long EVENT_ID = 1L;
+    private static final long CAPACITY = 500;
+    private static final int THREADS = 200;
+    private static final int ATTEMPTS_PER_THREAD = 5;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void createEvent() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        eventRepository.deleteAll();
+        final Venue venue = venueRepository.save(new Venue(1L, "Arena", "Main Street 1", CAPACITY));
+        eventRepository.save(new Event(EVENT_ID, "Flash sale", CAPACITY, CAPACITY, venue, 10.0));
+    }
+
+    @Test
+    void conditionalDecrementNeverOversells() throws InterruptedException {
+        // 1000 single-ticket orders for 500 tickets
+        final long granted = race(() -> transactionTemplate.execute(status -> eventRepository.decrementCapacity(EVENT_ID, 1L) == 1));
+        final long left = eventRepository.findLeftCapacityById(EVENT_ID).orElseThrow();
+
+        assertEquals(CAPACITY, granted);
+        assertEquals(0, left);
+        assertEquals(CAPACITY - left, granted);
+        assertTrue(left >= 0);
+    }
+
+    @Test
+    void readModifyWriteLosesUpdates() throws Exception {
+        // The findById / subtract / saveAndFlush path this replaced: two orders that both read before
+        // either writes are both granted, but capacity only goes down by one
+        final CyclicBarrier bothRead = new CyclicBarrier(2);
+        final Callable<Boolean> order = () -> transactionTemplate.execute(status -> {
+            final Event event = eventRepository.findById(EVENT_ID).orElseThrow();
+            try {
+                bothRead.await(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            if (event.getLeftCapacity() < 1) {
+                return false;
+            }
+            event.setLeftCapacity(event.getLeftCapacity() - 1);
+            eventRepository.saveAndFlush(event);
+            return true;
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        long granted = 0;
+        try {
+            for (Future<Boolean> result : executor.invokeAll(List.of(order, order))) {
+                if (Boolean.TRUE.equals(result.get())) {
+                    granted++;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        final long left = eventRepository.findLeftCapacityById(EVENT_ID).orElseThrow();
+
+        assertEquals(2, granted);
+        assertEquals(1, CAPACITY - left);
+    }
+
+    // Every thread tries ATTEMPTS_PER_THREAD single-ticket orders; returns how many were granted
+    private long race(final Callable<Boolean> order) throws InterruptedException {
+        final AtomicLong granted = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    if (Boolean.TRUE.equals(order.call())) {
+                        granted.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        return granted.get();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.yan.inventoryservice.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimingWheelTest {
+
+    @Test
+    void expiresScheduledAndSkipsCancelledTimeouts() throws InterruptedException {
+        try (HashedTimingWheel wheel = new HashedTimingWheel(Duration.ofMillis(10), 8, Thread.ofPlatform().daemon().factory())) {
+            final AtomicInteger fired = new AtomicInteger();
+            final CountDownLatch last = new CountDownLatch(1);
+            for (int i = 0; i < 10_000; i++) {
+                final HashedTimingWheel.Timeout timeout = wheel.schedule(fired::incrementAndGet, Duration.ofMillis(20 + i % 200));
+                if (i % 2 == 0) {
+                    assertTrue(timeout.cancel());
+                }
+            }
+            // Longer than a full rotation of the wheel, so it has to survive several passes over its bucket
+            wheel.schedule(last::countDown, Duration.ofMillis(300));
+
+            assertTrue(last.await(5, TimeUnit.SECONDS));
+            assertEquals(5_000, fired.get());
+            assertEquals(0, wheel.pendingTimeouts());
+        }
+    }
+
+    @Test
+    void cancelAfterExpiryHasNoEffect() throws InterruptedException {
+        try (HashedTimingWheel wheel = new HashedTimingWheel(Duration.ofMillis(10), 8, Thread.ofPlatform().daemon().factory())) {
+            final CountDownLatch fired = new CountDownLatch(1);
+            final HashedTimingWheel.Timeout timeout = wheel.schedule(fired::countDown, Duration.ofMillis(20));
+
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+            assertTrue(timeout.isExpired());
+            assertFalse(timeout.cancel());
+        }
+    }
+}
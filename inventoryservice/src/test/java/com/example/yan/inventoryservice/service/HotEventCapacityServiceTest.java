@@ -0,0 +1,81 @@
+package com.example.yan.inventoryservice.service;
+
+import com.example.yan.inventoryservice.repository.EventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:inventory;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HotEventCapacityServiceTest {
+    private static final long EVENT_ID = 2L;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private HotEventCapacityService hotEventCapacityService;
+
+    @BeforeEach
+    void createEvent() {
+        jdbcTemplate.update("DELETE FROM processed_order");
+        jdbcTemplate.update("DELETE FROM `order`");
+        jdbcTemplate.update("DELETE FROM event WHERE id = ?", EVENT_ID);
+        jdbcTemplate.update("MERGE INTO venue (id, name, address, total_capacity) KEY (id) VALUES (2, 'Hall', 'Side Street 2', 100)");
+        jdbcTemplate.update("INSERT INTO event (id, name, venue_id, total_capacity, left_capacity) VALUES (?, 'Hot', 2, 100, 100)", EVENT_ID);
+        hotEventCapacityService = new HotEventCapacityService(eventRepository, jdbcTemplate, Set.of(EVENT_ID), 4);
+    }
+
+    @Test
+    void recoversOnlyAppliedOrdersThatWereNotFlushed() {
+        // 10 tickets applied in memory before a crash, 5 rejected, and 7 stored by orderservice but not applied yet
+        processedOrder(1L, 10L, true);
+        processedOrder(2L, 5L, false);
+        jdbcTemplate.update("INSERT INTO `order` (id, total, quantity, event_id) VALUES (1, 100, 10, ?), (2, 50, 5, ?), (3, 70, 7, ?)",
+                EVENT_ID, EVENT_ID, EVENT_ID);
+
+        assertEquals(90, hotEventCapacityService.getLeftCapacity(EVENT_ID));
+        assertEquals(90, leftCapacityInTable());
+    }
+
+    @Test
+    void flushRebasesCounterWhenTableHasLessLeft() {
+        assertTrue(hotEventCapacityService.tryReserve(EVENT_ID, 30L, 0L));
+        // Someone else takes 80 of the 100 in the table, so the 30 reserved in memory no longer fit
+        jdbcTemplate.update("UPDATE event SET left_capacity = 20 WHERE id = ?", EVENT_ID);
+
+        hotEventCapacityService.flush();
+
+        assertEquals(0, leftCapacityInTable());
+        assertEquals(0, hotEventCapacityService.getLeftCapacity(EVENT_ID));
+        assertFalse(hotEventCapacityService.tryReserve(EVENT_ID, 1L, 0L));
+    }
+
+    private void processedOrder(final long orderId, final long tickets, final boolean applied) {
+        jdbcTemplate.update("INSERT INTO processed_order (order_id, event_id, ticket_count, applied) VALUES (?, ?, ?, ?)",
+                orderId, EVENT_ID, tickets, applied);
+    }
+
+    private long leftCapacityInTable() {
+        return eventRepository.findLeftCapacityById(EVENT_ID).orElseThrow();
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.yan.inventoryservice.service;
+
+import com.example.yan.inventoryservice.config.CacheConfig;
+import com.example.yan.inventoryservice.entity.SeatHold;
+import com.example.yan.inventoryservice.repository.EventRepository;
+import com.example.yan.inventoryservice.repository.SeatHoldRepository;
+import com.example.yan.inventoryservice.repository.VenueRepository;
+import com.example.yan.inventoryservice.response.SeatHoldResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+// Two services on one database stand in for two inventory instances behind the booking service's pool
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:inventory;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SeatHoldServiceTest {
+    private static final long EVENT_ID = 3L;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private SeatHoldRepository seatHoldRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SeatHoldService instanceA;
+    private SeatHoldService instanceB;
+
+    @BeforeEach
+    void createEvent() {
+        jdbcTemplate.update("DELETE FROM seat_hold");
+        jdbcTemplate.update("DELETE FROM event WHERE id = ?", EVENT_ID);
+        jdbcTemplate.update("MERGE INTO venue (id, name, address, total_capacity) KEY (id) VALUES (3, 'Club', 'Back Street 3', 10)");
+        jdbcTemplate.update("INSERT INTO event (id, name, venue_id, total_capacity, left_capacity) VALUES (?, 'Gig', 3, 10, 10)", EVENT_ID);
+        instanceA = seatHoldService(inventoryService(Set.of()));
+        instanceB = seatHoldService(inventoryService(Set.of()));
+    }
+
+    @AfterEach
+    void stopInstances() {
+        instanceA.shutdown();
+        instanceB.shutdown();
+    }
+
+    @Test
+    void holdMadeOnOneInstanceIsReleasedOnAnother() {
+        final SeatHoldResponse hold = instanceA.createHold(EVENT_ID, 4L, null).orElseThrow();
+
+        assertTrue(instanceB.release(hold.getHoldId()));
+        assertFalse(instanceA.release(hold.getHoldId()));
+        assertEquals(0, instanceA.getHeldTickets(EVENT_ID));
+        assertEquals(0, seatHoldRepository.count());
+    }
+
+    @Test
+    void holdMadeOnOneInstanceIsConfirmedOnAnother() {
+        final SeatHoldResponse hold = instanceA.createHold(EVENT_ID, 4L, null).orElseThrow();
+
+        assertTrue(instanceB.confirm(EVENT_ID, 4L, List.of(hold.getHoldId())));
+        assertEquals(6, leftCapacity());
+        assertEquals(0, instanceB.getHeldTickets(EVENT_ID));
+        assertFalse(instanceA.release(hold.getHoldId()));
+    }
+
+    @Test
+    void holdsOnEveryInstanceCountAgainstTheSameCapacity() {
+        assertTrue(instanceA.createHold(EVENT_ID, 6L, null).isPresent());
+
+        assertTrue(instanceB.createHold(EVENT_ID, 5L, null).isEmpty());
+        assertTrue(instanceB.createHold(EVENT_ID, 4L, null).isPresent());
+        assertEquals(10, instanceA.getHeldTickets(EVENT_ID));
+    }
+
+    @Test
+    void sweepExpiresHoldsLeftBehindByAnotherInstance() {
+        // A hold whose instance went away before its timing wheel fired
+        jdbcTemplate.update("INSERT INTO seat_hold (id, event_id, ticket_count, expires_at) VALUES ('gone', ?, 4, ?)",
+                EVENT_ID, Timestamp.from(Instant.now().minusSeconds(1)));
+        jdbcTemplate.update("UPDATE event SET held_capacity = 4 WHERE id = ?", EVENT_ID);
+        final SeatHoldResponse open = instanceA.createHold(EVENT_ID, 2L, null).orElseThrow();
+
+        instanceB.sweepExpired();
+
+        assertEquals(2, instanceB.getHeldTickets(EVENT_ID));
+        assertEquals(List.of(open.getHoldId()), seatHoldRepository.findAll().stream().map(SeatHold::getId).toList());
+    }
+
+    @Test
+    void salesWithoutHoldsLeaveHeldTicketsAlone() {
+        final SeatHoldResponse hold = instanceA.createHold(EVENT_ID, 4L, null).orElseThrow();
+        final InventoryService inventoryService = inventoryService(Set.of());
+
+        assertFalse(sell(inventoryService, 7L));
+        assertTrue(sell(inventoryService, 6L));
+        assertTrue(instanceB.confirm(EVENT_ID, 4L, List.of(hold.getHoldId())));
+        assertEquals(0, leftCapacity());
+        assertEquals(0, instanceB.getHeldTickets(EVENT_ID));
+    }
+
+    @Test
+    void hotEventSalesWithoutHoldsLeaveHeldTicketsAlone() {
+        final InventoryService inventoryService = inventoryService(Set.of(EVENT_ID));
+        final SeatHoldService instance = seatHoldService(inventoryService);
+        try {
+            final SeatHoldResponse hold = instance.createHold(EVENT_ID, 4L, null).orElseThrow();
+
+            assertFalse(sell(inventoryService, 7L));
+            assertTrue(sell(inventoryService, 6L));
+            assertTrue(instance.confirm(EVENT_ID, 4L, List.of(hold.getHoldId())));
+            assertEquals(0, inventoryService.getLeftCapacity(EVENT_ID));
+            assertEquals(0, instance.getHeldTickets(EVENT_ID));
+        } finally {
+            instance.shutdown();
+        }
+    }
+
+    @Test
+    void failedConfirmKeepsTheHolds() {
+        final SeatHoldResponse hold = instanceA.createHold(EVENT_ID, 4L, null).orElseThrow();
+        assertTrue(sell(inventoryService(Set.of()), 6L));
+
+        // The order asks for more than was held and the rest is gone
+        assertFalse(instanceB.confirm(EVENT_ID, 5L, List.of(hold.getHoldId())));
+        assertEquals(4, instanceB.getHeldTickets(EVENT_ID));
+        assertEquals(4, leftCapacity());
+        assertTrue(instanceB.confirm(EVENT_ID, 4L, List.of(hold.getHoldId())));
+    }
+
+    // Outside of Spring the service has no transactional proxy, so the sale gets its transaction here
+    private boolean sell(final InventoryService inventoryService, final long tickets) {
+        return Boolean.TRUE.equals(new TransactionTemplate(transactionManager)
+                .execute(status -> inventoryService.updateEventCapacity(EVENT_ID, tickets)));
+    }
+
+    private InventoryService inventoryService(final Set<Long> hotEventIds) {
+        return new InventoryService(eventRepository, venueRepository,
+                new HotEventCapacityService(eventRepository, jdbcTemplate, hotEventIds, 4), mock(CapacityChangePublisher.class),
+                new ConcurrentMapCacheManager(CacheConfig.EVENT_INVENTORY_CACHE, CacheConfig.VENUE_INVENTORY_CACHE), new ObjectMapper());
+    }
+
+    private SeatHoldService seatHoldService(final InventoryService inventoryService) {
+        return new SeatHoldService(inventoryService, eventRepository, seatHoldRepository,
+                new TransactionTemplate(transactionManager), 100, 64, 300, 900, 100);
+    }
+
+    private long leftCapacity() {
+        return eventRepository.findLeftCapacityById(EVENT_ID).orElseThrow();
+    }
+}
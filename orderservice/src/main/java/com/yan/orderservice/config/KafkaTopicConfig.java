@@ -0,0 +1,22 @@
+package com.yan.orderservice.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicConfig {
+    @Value("${order-placed.topic.partitions:6}")
+    private int orderPlacedPartitions;
+
+    // Keyed by eventId like the booking topic, so decrements for one event are applied in order
+    @Bean
+    public NewTopic orderPlacedTopic() {
+        return TopicBuilder.name("order-placed")
+                .partitions(orderPlacedPartitions)
+                .replicas(1)
+                .build();
+    }
+}
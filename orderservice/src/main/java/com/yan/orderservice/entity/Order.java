@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 @Table(name = "`order`")
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    @SequenceGenerator(name = "order_seq", sequenceName = "order_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "total")
@@ -36,4 +37,14 @@ public class Order {
 
     @Column(name = "event_id")
     private long eventId;
+
+    // Outbox id of the booking this order was created from, unique so a redelivered booking is not stored twice
+    @Column(name = "booking_id", updatable = false)
+    private Long bookingId;
+
+    // Set to REJECTED when inventoryservice publishes that it cannot take the tickets for this order
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    @Builder.Default
+    private OrderStatus status = OrderStatus.PLACED;
 }
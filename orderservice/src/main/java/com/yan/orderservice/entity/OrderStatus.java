@@ -0,0 +1,7 @@
+package com.yan.orderservice.entity;
+
+public enum OrderStatus {
+    PLACED,
+    // Inventory had not enough capacity left when it applied the order
+    REJECTED
+}
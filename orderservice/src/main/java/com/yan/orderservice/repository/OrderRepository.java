@@ -2,8 +2,20 @@ package com.yan.orderservice.repository;
 
 import com.yan.orderservice.entity.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    List<Order> findByBookingIdIn(Collection<Long> bookingIds);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = com.yan.orderservice.entity.OrderStatus.REJECTED WHERE o.id IN :orderIds")
+    int markRejected(@Param("orderIds") Collection<Long> orderIds);
 }
@@ -0,0 +1,44 @@
+package com.yan.orderservice.service;
+
+import com.yan.eventcontract.event.OrderRejectedEvent;
+import com.yan.orderservice.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+
+// Marks the orders inventory had no capacity for as rejected. Inventory publishes at least once;
+// marking an order rejected again changes nothing.
+@Service
+@Slf4j
+public class OrderRejectionService {
+
+    private final OrderRepository orderRepository;
+
+    @Autowired
+    public OrderRejectionService(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    @KafkaListener(topics = "order-rejected", groupId = "order-service", batch = "true",
+            concurrency = "${order.rejected.concurrency:3}",
+            properties = {"spring.deserializer.value.delegate.class=com.yan.eventcontract.serialization.OrderRejectedEventDeserializer"})
+    @Transactional
+    public void orderRejected(List<OrderRejectedEvent> records){
+        // Records the deserializer could not decode arrive as null and are skipped
+        final List<Long> orderIds = records.stream()
+                .filter(Objects::nonNull)
+                .map(OrderRejectedEvent::getOrderId)
+                .distinct()
+                .toList();
+        if(orderIds.isEmpty()){
+            return;
+        }
+        final int marked = orderRepository.markRejected(orderIds);
+        log.info("Marked {} of {} orders rejected by inventory", marked, orderIds.size());
+    }
+}
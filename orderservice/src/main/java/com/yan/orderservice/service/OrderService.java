@@ -1,36 +1,135 @@
 package com.yan.orderservice.service;
 
-import com.yan.bookingservice.event.BookingEvent;
-import com.yan.orderservice.client.InventoryServiceClient;
+import com.yan.eventcontract.event.BookingEvent;
+import com.yan.eventcontract.event.OrderPlacedEvent;
 import com.yan.orderservice.entity.Order;
 import com.yan.orderservice.repository.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class OrderService {
 
     private final OrderRepository orderRepository;
-    private final InventoryServiceClient inventoryServiceClient;
+    private final KafkaTemplate<String, OrderPlacedEvent> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer batchTimer;
+    private final Timer bookingToOrderTimer;
 
     @Autowired
-    public OrderService(OrderRepository orderRepository, InventoryServiceClient inventoryServiceClient) {
+    public OrderService(OrderRepository orderRepository,
+                        KafkaTemplate<String, OrderPlacedEvent> kafkaTemplate,
+                        TransactionTemplate transactionTemplate,
+                        MeterRegistry meterRegistry) {
         this.orderRepository = orderRepository;
-        this.inventoryServiceClient = inventoryServiceClient;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchTimer = Timer.builder("order.batch.process")
+                .description("Time to store a batch of orders and publish their order placed events")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.bookingToOrderTimer = Timer.builder("booking.order.latency")
+                .description("Time from a booking being created until its order was stored")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Consumes up to spring.kafka.consumer.max-poll-records bookings per call, with one consumer
+    // per partition up to order.consumer.concurrency
+    @KafkaListener(topics = "booking", groupId = "order-service", batch = "true",
+            concurrency = "${order.consumer.concurrency:3}")
+    public void orderEvents(List<BookingEvent> records){
+        batchTimer.record(() -> processBookings(records));
+    }
+
+    private void processBookings(List<BookingEvent> records){
+        // Records the deserializer could not decode arrive as null and are skipped
+        final List<BookingEvent> bookingEvents = records.stream().filter(Objects::nonNull).toList();
+        if(bookingEvents.size() < records.size()){
+            log.warn("Skipped {} undecodable booking events", records.size() - bookingEvents.size());
+        }
+        log.info("Received {} order events", bookingEvents.size());
+        // The outbox relay publishes at least once. A booking that is already stored as an order is not
+        // stored again, but its order placed event is sent again: the earlier attempt may have stopped
+        // before publishing it, and inventory skips orders it already applied
+        final Map<Long, Order> storedOrders = findStoredOrders(bookingEvents);
+        final Set<Long> seenBookingIds = new HashSet<>();
+        final List<Order> orders = new ArrayList<>(bookingEvents.size());
+        final List<BookingEvent> placedBookings = new ArrayList<>(bookingEvents.size());
+        final List<Order> newOrders = new ArrayList<>(bookingEvents.size());
+        final List<BookingEvent> newBookings = new ArrayList<>(bookingEvents.size());
+        for (BookingEvent bookingEvent : bookingEvents) {
+            final Long bookingId = bookingEvent.getBookingId();
+            if(bookingId != null && !seenBookingIds.add(bookingId)){
+                // Delivered twice within this batch
+                continue;
+            }
+            Order order = bookingId == null ? null : storedOrders.get(bookingId);
+            if(order == null){
+                order = createOrder(bookingEvent);
+                newOrders.add(order);
+                newBookings.add(bookingEvent);
+            }
+            orders.add(order);
+            placedBookings.add(bookingEvent);
+        }
+        if(newOrders.size() < bookingEvents.size()){
+            log.info("Skipped {} bookings that were delivered again", bookingEvents.size() - newOrders.size());
+        }
+        // Insert the new orders in one transaction as a JDBC batch. If another consumer stored one of
+        // them meanwhile, the unique booking id fails the batch and the redelivery finds it stored
+        transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.saveAll(newOrders);
+            orderRepository.flush();
+        });
+        // Bookings written before createdAt was added to the event carry no timestamp
+        final Instant stored = Instant.now();
+        newBookings.stream()
+                .map(BookingEvent::getCreatedAt)
+                .filter(Objects::nonNull)
+                .forEach(createdAt -> bookingToOrderTimer.record(Duration.between(createdAt, stored)));
+        // Inventory applies the decrements from the order-placed topic, keyed by event like the bookings.
+        // Offsets are only committed once every event is acknowledged by the broker.
+        final List<CompletableFuture<?>> sends = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            final OrderPlacedEvent orderPlacedEvent = createOrderPlacedEvent(orders.get(i), placedBookings.get(i));
+            sends.add(kafkaTemplate.send("order-placed", String.valueOf(orderPlacedEvent.getEventId()), orderPlacedEvent));
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+        log.info("Published {} order placed events", orders.size());
     }
 
-    @KafkaListener(topics = "booking", groupId = "order-service")
-    public void orderEvent(BookingEvent bookingEvent){
-        log.info("Received order event: {}", bookingEvent);
-        // Create Order object for DB
-        Order order = createOrder(bookingEvent);
-        orderRepository.saveAndFlush(order);
-        // Update Inventory
-        inventoryServiceClient.updateInventory(order.getEventId(), order.getTicketCount());
-        log.info("Inventory updated for event: {}, less tickets: {}", order.getEventId(), order.getTicketCount());
+    // Orders already stored for the bookings of this batch, by booking id
+    private Map<Long, Order> findStoredOrders(List<BookingEvent> bookingEvents) {
+        final List<Long> bookingIds = bookingEvents.stream()
+                .map(BookingEvent::getBookingId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if(bookingIds.isEmpty()){
+            return Map.of();
+        }
+        return orderRepository.findByBookingIdIn(bookingIds).stream()
+                .collect(Collectors.toMap(Order::getBookingId, Function.identity()));
     }
 
     private Order createOrder(BookingEvent bookingEvent) {
@@ -39,6 +138,16 @@ public class OrderService {
                 .eventId(bookingEvent.getEventId())
                 .ticketCount(bookingEvent.getTicketCount())
                 .totalPrice(bookingEvent.getTotalPrice())
+                .bookingId(bookingEvent.getBookingId())
+                .build();
+    }
+
+    private OrderPlacedEvent createOrderPlacedEvent(Order order, BookingEvent bookingEvent) {
+        return OrderPlacedEvent.builder()
+                .orderId(order.getId())
+                .eventId(order.getEventId())
+                .ticketCount(order.getTicketCount())
+                .holdId(bookingEvent.getHoldId())
                 .build();
     }
 }
@@ -0,0 +1,4 @@
+-- Orderservice migrates the columns it owns in the shared schema; the order table itself is created by
+-- inventoryservice (V5), which has to have migrated first. Orders inventory rejects are marked REJECTED.
+ALTER TABLE `order`
+ADD COLUMN status VARCHAR(16) NOT NULL DEFAULT 'PLACED';
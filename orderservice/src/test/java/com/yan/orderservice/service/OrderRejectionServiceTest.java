@@ -0,0 +1,33 @@
+package com.yan.orderservice.service;
+
+import com.yan.eventcontract.event.OrderRejectedEvent;
+import com.yan.orderservice.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class OrderRejectionServiceTest {
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final OrderRejectionService orderRejectionService = new OrderRejectionService(orderRepository);
+
+    @Test
+    void marksEachRejectedOrderOnce() {
+        orderRejectionService.orderRejected(Arrays.asList(
+                new OrderRejectedEvent(1L, 7L, 2L), null, new OrderRejectedEvent(2L, 7L, 1L), new OrderRejectedEvent(1L, 7L, 2L)));
+
+        verify(orderRepository).markRejected(List.of(1L, 2L));
+    }
+
+    @Test
+    void skipsBatchesWithNothingDecodable() {
+        orderRejectionService.orderRejected(Arrays.asList((OrderRejectedEvent) null));
+
+        verify(orderRepository, never()).markRejected(any());
+    }
+}
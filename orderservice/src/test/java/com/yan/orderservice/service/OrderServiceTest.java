@@ -0,0 +1,97 @@
+package com.yan.orderservice.service;
+
+import com.yan.eventcontract.event.BookingEvent;
+import com.yan.eventcontract.event.OrderPlacedEvent;
+import com.yan.orderservice.entity.Order;
+import com.yan.orderservice.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderServiceTest {
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, OrderPlacedEvent> kafkaTemplate = mock(KafkaTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final List<Order> saved = new ArrayList<>();
+
+    private OrderService orderService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        final AtomicLong ids = new AtomicLong(100);
+        when(orderRepository.saveAll(any())).thenAnswer(invocation -> {
+            final Iterable<Order> orders = invocation.getArgument(0);
+            orders.forEach(order -> {
+                order.setId(ids.incrementAndGet());
+                saved.add(order);
+            });
+            return orders;
+        });
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(kafkaTemplate.send(anyString(), anyString(), any(OrderPlacedEvent.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        orderService = new OrderService(orderRepository, kafkaTemplate, transactionTemplate, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void storesEachBookingOnceAndRepublishesStoredOnes() {
+        // Booking 1 was stored by an earlier delivery as order 7, booking 2 arrives twice in this batch
+        final Order stored = Order.builder().id(7L).bookingId(1L).eventId(5L).ticketCount(2L).build();
+        when(orderRepository.findByBookingIdIn(any())).thenReturn(List.of(stored));
+
+        orderService.orderEvents(List.of(booking(1L, 2L), booking(2L, 3L), booking(2L, 3L)));
+
+        assertEquals(1, saved.size());
+        assertEquals(2L, saved.get(0).getBookingId());
+        final ArgumentCaptor<OrderPlacedEvent> published = ArgumentCaptor.forClass(OrderPlacedEvent.class);
+        verify(kafkaTemplate, times(2)).send(eq("order-placed"), eq("5"), published.capture());
+        assertEquals(List.of(7L, saved.get(0).getId()), published.getAllValues().stream().map(OrderPlacedEvent::getOrderId).toList());
+    }
+
+    @Test
+    void storesBookingsWithoutIdEveryTime() {
+        // Bookings published before the id was carried cannot be recognised
+        final BookingEvent legacy = booking(null, 1L);
+
+        orderService.orderEvents(List.of(legacy, legacy));
+
+        assertEquals(2, saved.size());
+        verify(kafkaTemplate, times(2)).send(eq("order-placed"), eq("5"), any(OrderPlacedEvent.class));
+    }
+
+    private static BookingEvent booking(final Long bookingId, final long tickets) {
+        return BookingEvent.builder()
+                .bookingId(bookingId)
+                .userId(1L)
+                .eventId(5L)
+                .ticketCount(tickets)
+                .totalPrice(new BigDecimal("10.00").multiply(BigDecimal.valueOf(tickets)))
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.yan.upstream;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caps hedged requests at a fraction of all requests: every request deposits `ratio` of a token,
+// a hedge spends a whole one, and at most `burst` tokens are saved up
+public class HedgeBudget {
+    private static final long TOKEN = 1000;
+
+    private final long depositPerRequest;
+    private final long maxBalance;
+    private final AtomicLong balance = new AtomicLong();
+
+    public HedgeBudget(final double ratio, final int burst) {
+        this.depositPerRequest = Math.round(ratio * TOKEN);
+        this.maxBalance = burst * TOKEN;
+    }
+
+    public void onRequest() {
+        long current;
+        do {
+            current = balance.get();
+            if(current >= maxBalance){
+                return;
+            }
+        } while(!balance.compareAndSet(current, Math.min(maxBalance, current + depositPerRequest)));
+    }
+
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = balance.get();
+            if(current < TOKEN){
+                return false;
+            }
+        } while(!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+}
@@ -0,0 +1,217 @@
+package com.yan.upstream;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Runs idempotent calls against a pool with hedging: if the first attempt has not answered once
+// the hedge percentile of recent response times has passed, a second attempt goes to another
+// instance and the first answer wins. Hedges are capped by a budget so a slow upstream does not
+// get twice the load, and the overall timeout follows the observed tail instead of a fixed value.
+// Once there is an answer or the timeout has passed, the attempts still running are interrupted,
+// and the time they had taken goes into the window as a lower bound of their response time.
+// Blocking socket I/O on a virtual thread is interruptible, so an HTTP call is aborted and its
+// connection closed instead of being held until the socket timeout.
+public class HedgedExecutor implements AutoCloseable {
+    private final UpstreamPool pool;
+    private final LatencyTracker latency;
+    private final HedgeBudget budget;
+    private final double hedgePercentile;
+    private final long minHedgeDelayNanos;
+    private final double timeoutPercentile;
+    private final double timeoutMultiplier;
+    private final long minTimeoutNanos;
+    private final long maxTimeoutNanos;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    private HedgedExecutor(final Builder builder) {
+        this.pool = builder.pool;
+        this.latency = new LatencyTracker(builder.windowSize, builder.minSamples, TimeUnit.MILLISECONDS.toNanos(100));
+        this.budget = new HedgeBudget(builder.budgetRatio, builder.budgetBurst);
+        this.hedgePercentile = builder.hedgePercentile;
+        this.minHedgeDelayNanos = builder.minHedgeDelay.toNanos();
+        this.timeoutPercentile = builder.timeoutPercentile;
+        this.timeoutMultiplier = builder.timeoutMultiplier;
+        this.minTimeoutNanos = builder.minTimeout.toNanos();
+        this.maxTimeoutNanos = builder.maxTimeout.toNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("upstream-hedge-" + pool.name()).daemon().factory());
+    }
+
+    public static Builder builder(final UpstreamPool pool) {
+        return new Builder(pool);
+    }
+
+    public <T> CompletableFuture<T> execute(final Function<URI, T> call, final Predicate<RuntimeException> isInstanceFailure) {
+        budget.onRequest();
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final AtomicInteger running = new AtomicInteger(1);
+        final UpstreamInstance primary = pool.choose();
+        attempt(primary, call, isInstanceFailure, result, running, false);
+        final long hedgeDelay = hedgeDelayNanos();
+        if(hedgeDelay > 0){
+            final ScheduledFuture<?> hedge = scheduler.schedule(
+                    () -> hedge(primary, call, isInstanceFailure, result, running), hedgeDelay, TimeUnit.NANOSECONDS);
+            result.whenComplete((value, error) -> hedge.cancel(false));
+        }
+        return result.orTimeout(timeoutNanos(), TimeUnit.NANOSECONDS)
+                .whenComplete((value, error) -> {
+                    if(error instanceof TimeoutException){
+                        timeouts.increment();
+                    }
+                });
+    }
+
+    // Hedge delay in nanoseconds, or -1 while there are too few samples to tell what slow is
+    public long hedgeDelayNanos() {
+        final long percentile = latency.percentile(hedgePercentile);
+        return percentile < 0 ? -1 : Math.max(minHedgeDelayNanos, percentile);
+    }
+
+    public long timeoutNanos() {
+        final long percentile = latency.percentile(timeoutPercentile);
+        if(percentile < 0){
+            return maxTimeoutNanos;
+        }
+        return Math.max(minTimeoutNanos, Math.min(maxTimeoutNanos, (long) (percentile * timeoutMultiplier)));
+    }
+
+    public long hedges() {
+        return hedges.sum();
+    }
+
+    public long hedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    public long budgetExhausted() {
+        return budgetExhausted.sum();
+    }
+
+    public long timeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        executor.shutdown();
+    }
+
+    private <T> void hedge(final UpstreamInstance primary, final Function<URI, T> call,
+                           final Predicate<RuntimeException> isInstanceFailure,
+                           final CompletableFuture<T> result, final AtomicInteger running) {
+        if(result.isDone()){
+            return;
+        }
+        final UpstreamInstance other = pool.chooseExcluding(primary);
+        if(other == null){
+            return;
+        }
+        if(!budget.tryAcquire()){
+            budgetExhausted.increment();
+            return;
+        }
+        hedges.increment();
+        running.incrementAndGet();
+        attempt(other, call, isInstanceFailure, result, running, true);
+    }
+
+    private <T> void attempt(final UpstreamInstance instance, final Function<URI, T> call,
+                             final Predicate<RuntimeException> isInstanceFailure,
+                             final CompletableFuture<T> result, final AtomicInteger running, final boolean hedged) {
+        final Future<?> task = executor.submit(() -> {
+            final long started = instance.begin();
+            final T value;
+            try {
+                value = call.apply(instance.uri());
+            } catch (RuntimeException e) {
+                final boolean cutOff = result.isDone();
+                // An attempt cut off because it was no longer needed says nothing about the instance's health
+                final long elapsed = instance.end(started, cutOff || !isInstanceFailure.test(e));
+                // but it did take at least this long. Left out, the slow attempts that lost to a hedge or ran
+                // into the timeout would never reach the window, and the percentiles would only see the fast ones.
+                if(cutOff){
+                    latency.record(elapsed);
+                }
+                // Fail only once no other attempt is left that could still answer
+                if(running.decrementAndGet() == 0){
+                    result.completeExceptionally(e);
+                }
+                return;
+            }
+            latency.record(instance.end(started, true));
+            if(result.complete(value) && hedged){
+                hedgeWins.increment();
+            }
+        });
+        result.whenComplete((value, error) -> task.cancel(true));
+    }
+
+    public static class Builder {
+        private final UpstreamPool pool;
+        private int windowSize = 1024;
+        private int minSamples = 50;
+        private double hedgePercentile = 0.95;
+        private Duration minHedgeDelay = Duration.ofMillis(5);
+        private double budgetRatio = 0.1;
+        private int budgetBurst = 10;
+        private double timeoutPercentile = 0.99;
+        private double timeoutMultiplier = 3;
+        private Duration minTimeout = Duration.ofMillis(200);
+        private Duration maxTimeout = Duration.ofSeconds(3);
+
+        private Builder(final UpstreamPool pool) {
+            this.pool = pool;
+        }
+
+        // Recent responses the percentiles are taken over, and how many are needed before hedging
+        public Builder window(final int windowSize, final int minSamples) {
+            this.windowSize = windowSize;
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        public Builder hedgeAfter(final double percentile, final Duration minDelay) {
+            this.hedgePercentile = percentile;
+            this.minHedgeDelay = minDelay;
+            return this;
+        }
+
+        // Hedges allowed per request (0.1 = at most 10% extra requests), with up to burst saved up
+        public Builder hedgeBudget(final double ratio, final int burst) {
+            this.budgetRatio = ratio;
+            this.budgetBurst = burst;
+            return this;
+        }
+
+        // Timeout = percentile x multiplier, kept between min and max; max applies until there are samples
+        public Builder timeout(final double percentile, final double multiplier, final Duration min, final Duration max) {
+            this.timeoutPercentile = percentile;
+            this.timeoutMultiplier = multiplier;
+            this.minTimeout = min;
+            this.maxTimeout = max;
+            return this;
+        }
+
+        public HedgedExecutor build() {
+            return new HedgedExecutor(this);
+        }
+    }
+}
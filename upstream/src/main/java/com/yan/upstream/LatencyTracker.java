@@ -0,0 +1,71 @@
+package com.yan.upstream;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+// Response times of the last N calls in a ring buffer. Percentiles are read from a sorted copy
+// that is refreshed at most once per refresh interval, so recording stays a single array write.
+public class LatencyTracker {
+    private final AtomicLongArray samples;
+    private final AtomicLong recorded = new AtomicLong();
+    private final int mask;
+    private final int minSamples;
+    private final long refreshNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+
+    public LatencyTracker(final int windowSize, final int minSamples, final long refreshNanos) {
+        this(windowSize, minSamples, refreshNanos, System::nanoTime);
+    }
+
+    LatencyTracker(final int windowSize, final int minSamples, final long refreshNanos, final LongSupplier nanoClock) {
+        final int size = Integer.highestOneBit(Math.max(1, windowSize - 1)) << 1;
+        this.samples = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.minSamples = minSamples;
+        this.refreshNanos = refreshNanos;
+        this.nanoClock = nanoClock;
+        this.snapshot = new Snapshot(new long[0], nanoClock.getAsLong() - refreshNanos);
+    }
+
+    public void record(final long latencyNanos) {
+        samples.set((int) (recorded.getAndIncrement() & mask), latencyNanos);
+    }
+
+    // The q-th quantile (0..1) of the window, or -1 while fewer than minSamples calls were seen
+    public long percentile(final double q) {
+        Snapshot current = snapshot;
+        final long now = nanoClock.getAsLong();
+        if(now - current.takenAtNanos() >= refreshNanos && refreshing.compareAndSet(false, true)){
+            try {
+                current = takeSnapshot(now);
+                snapshot = current;
+            } finally {
+                refreshing.set(false);
+            }
+        }
+        final long[] sorted = current.sorted();
+        if(sorted.length < minSamples){
+            return -1;
+        }
+        final int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private Snapshot takeSnapshot(final long now) {
+        final int count = (int) Math.min(recorded.get(), samples.length());
+        final long[] sorted = new long[count];
+        for(int i = 0; i < count; i++){
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        return new Snapshot(sorted, now);
+    }
+
+    private record Snapshot(long[] sorted, long takenAtNanos) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.yan.upstream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Probes every instance of a pool on a fixed interval and takes instances whose health endpoint
+// does not answer 2xx in time out of rotation until they do again
+public class UpstreamHealthChecker implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(UpstreamHealthChecker.class);
+
+    private final UpstreamPool pool;
+    private final String healthPath;
+    private final Duration interval;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService scheduler;
+
+    public UpstreamHealthChecker(final UpstreamPool pool, final String healthPath, final Duration interval,
+                                 final Duration timeout) {
+        this.pool = pool;
+        this.healthPath = healthPath;
+        this.interval = interval;
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("upstream-health-" + pool.name()).daemon().factory());
+    }
+
+    public UpstreamHealthChecker start() {
+        scheduler.scheduleWithFixedDelay(this::checkAll, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    public void checkAll() {
+        for(UpstreamInstance instance : pool.instances()){
+            final HttpRequest request = HttpRequest.newBuilder(URI.create(instance.uri() + healthPath))
+                    .timeout(timeout)
+                    .GET()
+                    .build();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> update(instance,
+                            error == null && response.statusCode() / 100 == 2));
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        httpClient.close();
+    }
+
+    private void update(final UpstreamInstance instance, final boolean healthy) {
+        if(instance.isHealthy() != healthy){
+            if(healthy){
+                log.info("Upstream {} instance {} is healthy again", pool.name(), instance);
+            } else {
+                log.warn("Upstream {} instance {} failed its health check", pool.name(), instance);
+            }
+        }
+        instance.setHealthy(healthy);
+    }
+}
@@ -0,0 +1,100 @@
+package com.yan.upstream;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+// One instance of an upstream service with the load signals the pool balances on: requests in
+// flight and a peak-sensitive EWMA of response time. A slow response raises the average at once,
+// fast ones pull it back down over the decay time.
+public class UpstreamInstance {
+    private final URI uri;
+    private final long decayNanos;
+    private final int failureThreshold;
+    private final long ejectionNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean healthy = true;
+    private volatile long ejectedUntilNanos;
+    private volatile double latencyNanos;
+    private long lastObservedNanos;
+
+    UpstreamInstance(final URI uri, final long decayNanos, final int failureThreshold, final long ejectionNanos,
+                     final LongSupplier nanoClock) {
+        this.uri = uri;
+        this.decayNanos = decayNanos;
+        this.failureThreshold = failureThreshold;
+        this.ejectionNanos = ejectionNanos;
+        this.nanoClock = nanoClock;
+        this.ejectedUntilNanos = nanoClock.getAsLong();
+    }
+
+    public URI uri() {
+        return uri;
+    }
+
+    // Marks a request as in flight; pass the returned start time to end()
+    public long begin() {
+        outstanding.incrementAndGet();
+        return nanoClock.getAsLong();
+    }
+
+    // Records the outcome and returns the response time
+    public long end(final long startedNanos, final boolean success) {
+        final long now = nanoClock.getAsLong();
+        final long rttNanos = now - startedNanos;
+        outstanding.decrementAndGet();
+        observe(rttNanos, now);
+        if(success){
+            consecutiveFailures.set(0);
+        } else if(consecutiveFailures.incrementAndGet() >= failureThreshold){
+            // Taken out of rotation until the ejection time has passed, without waiting for a health check
+            consecutiveFailures.set(0);
+            ejectedUntilNanos = now + ejectionNanos;
+        }
+        return rttNanos;
+    }
+
+    // Expected wait for a new request: the latency estimate scaled by the queue it would join.
+    // Instances without observations yet cost 1ns per request in flight, so they are tried first.
+    public double cost() {
+        return (latencyNanos + 1) * (outstanding.get() + 1);
+    }
+
+    public boolean isAvailable() {
+        return healthy && nanoClock.getAsLong() - ejectedUntilNanos >= 0;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    public double latencyNanos() {
+        return latencyNanos;
+    }
+
+    void setHealthy(final boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    private synchronized void observe(final long rttNanos, final long now) {
+        final double current = latencyNanos;
+        if(current == 0 || rttNanos > current){
+            latencyNanos = rttNanos;
+        } else {
+            final double weight = Math.exp(-Math.max(0, now - lastObservedNanos) / (double) decayNanos);
+            latencyNanos = current * weight + rttNanos * (1 - weight);
+        }
+        lastObservedNanos = now;
+    }
+
+    @Override
+    public String toString() {
+        return uri.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package com.yan.upstream;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+// Instances of one upstream service, balanced with power of two choices over peak EWMA cost: two
+// random available instances are compared and the cheaper one gets the request. Sampling two keeps
+// the choice O(1) and stops every client from piling onto the same "best" instance.
+public class UpstreamPool {
+    private final String name;
+    private final UpstreamInstance[] instances;
+
+    private UpstreamPool(final String name, final UpstreamInstance[] instances) {
+        this.name = name;
+        this.instances = instances;
+    }
+
+    public static Builder builder(final String name) {
+        return new Builder(name);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public List<UpstreamInstance> instances() {
+        return Arrays.asList(instances);
+    }
+
+    public UpstreamInstance choose() {
+        if(instances.length == 1){
+            return instances[0];
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(instances.length);
+        int second = random.nextInt(instances.length - 1);
+        if(second >= first){
+            second++;
+        }
+        final UpstreamInstance a = instances[first];
+        final UpstreamInstance b = instances[second];
+        final boolean aAvailable = a.isAvailable();
+        final boolean bAvailable = b.isAvailable();
+        if(aAvailable && bAvailable){
+            return a.cost() <= b.cost() ? a : b;
+        }
+        if(aAvailable || bAvailable){
+            return aAvailable ? a : b;
+        }
+        // Both samples are down: take the cheapest available instance, or fail open if none is
+        UpstreamInstance best = null;
+        for(UpstreamInstance instance : instances){
+            if(instance.isAvailable() && (best == null || instance.cost() < best.cost())){
+                best = instance;
+            }
+        }
+        if(best != null){
+            return best;
+        }
+        return a.cost() <= b.cost() ? a : b;
+    }
+
+    // The preferred instance while it is in the pool and available, e.g. because it holds state the
+    // request refers to; otherwise the usual choice
+    public UpstreamInstance choosePreferring(final URI preferred) {
+        if(preferred != null){
+            for(UpstreamInstance instance : instances){
+                if(instance.uri().equals(preferred) && instance.isAvailable()){
+                    return instance;
+                }
+            }
+        }
+        return choose();
+    }
+
+    // The cheapest available instance other than the given one, or null if there is none; used to
+    // send a hedged request somewhere else than the slow one
+    public UpstreamInstance chooseExcluding(final UpstreamInstance excluded) {
+        UpstreamInstance best = null;
+        for(UpstreamInstance instance : instances){
+            if(instance != excluded && instance.isAvailable() && (best == null || instance.cost() < best.cost())){
+                best = instance;
+            }
+        }
+        return best;
+    }
+
+    // Runs the call against the chosen instance's base URI and records its outcome. Exceptions that
+    // say nothing about the instance (e.g. 4xx answers) should not match isInstanceFailure.
+    public <T> T execute(final Function<URI, T> call, final Predicate<RuntimeException> isInstanceFailure) {
+        final UpstreamInstance instance = choose();
+        final long started = instance.begin();
+        try {
+            final T result = call.apply(instance.uri());
+            instance.end(started, true);
+            return result;
+        } catch (RuntimeException e) {
+            instance.end(started, !isInstanceFailure.test(e));
+            throw e;
+        }
+    }
+
+    public static class Builder {
+        private final String name;
+        private List<URI> uris = List.of();
+        private Duration decay = Duration.ofSeconds(10);
+        private int failureThreshold = 3;
+        private Duration ejection = Duration.ofSeconds(5);
+        private LongSupplier nanoClock = System::nanoTime;
+
+        private Builder(final String name) {
+            this.name = name;
+        }
+
+        // Comma-separated base URLs, e.g. "http://host-a:8080,http://host-b:8080"
+        public Builder urls(final String urls) {
+            this.uris = Arrays.stream(urls.split(","))
+                    .map(String::trim)
+                    .filter(url -> !url.isEmpty())
+                    .map(url -> url.endsWith("/") ? url.substring(0, url.length() - 1) : url)
+                    .map(URI::create)
+                    .toList();
+            return this;
+        }
+
+        public Builder decay(final Duration decay) {
+            this.decay = decay;
+            return this;
+        }
+
+        // Consecutive failed requests after which an instance is ejected for the ejection time
+        public Builder failureThreshold(final int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        public Builder ejection(final Duration ejection) {
+            this.ejection = ejection;
+            return this;
+        }
+
+        Builder nanoClock(final LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public UpstreamPool build() {
+            if(uris.isEmpty()){
+                throw new IllegalArgumentException("Upstream " + name + " needs at least one URL");
+            }
+            return new UpstreamPool(name, uris.stream()
+                    .map(uri -> new UpstreamInstance(uri, decay.toNanos(), failureThreshold, ejection.toNanos(), nanoClock))
+                    .toArray(UpstreamInstance[]::new));
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.yan.upstream;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgedExecutorTest {
+    private static final int REQUESTS = 200;
+
+    private final List<HttpServer> stubs = new ArrayList<>();
+    private final List<ExecutorService> stubExecutors = new ArrayList<>();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @AfterEach
+    void stopStubs() {
+        stubs.forEach(stub -> stub.stop(0));
+        stubExecutors.forEach(ExecutorService::shutdownNow);
+    }
+
+    @Test
+    void hedgingCutsTheTailCausedByLatencySpikes() throws Exception {
+        final UpstreamPool unhedgedPool = UpstreamPool.builder("stubs").urls(stub() + "," + stub()).build();
+        final long[] unhedged = new long[REQUESTS];
+        for(int i = 0; i < REQUESTS; i++){
+            final long started = System.nanoTime();
+            unhedgedPool.execute(this::get, e -> true);
+            unhedged[i] = System.nanoTime() - started;
+        }
+
+        final UpstreamPool hedgedPool = UpstreamPool.builder("stubs").urls(stub() + "," + stub()).build();
+        final long[] hedged = new long[REQUESTS];
+        try(HedgedExecutor executor = HedgedExecutor.builder(hedgedPool)
+                .window(1024, 20)
+                .hedgeAfter(0.95, Duration.ofMillis(5))
+                .hedgeBudget(0.1, 10)
+                // Keeps the timeout out of the way when both attempts hit a spike
+                .timeout(0.99, 3, Duration.ofSeconds(1), Duration.ofSeconds(3))
+                .build()){
+            for(int i = 0; i < REQUESTS; i++){
+                final long started = System.nanoTime();
+                executor.execute(this::get, e -> true).get();
+                hedged[i] = System.nanoTime() - started;
+            }
+            assertTrue(executor.hedges() > 0);
+            assertTrue(executor.hedgeWins() > 0);
+        }
+
+        assertTrue(p99(unhedged) >= TimeUnit.MILLISECONDS.toNanos(250), "unhedged p99 " + p99(unhedged));
+        assertTrue(p99(hedged) < TimeUnit.MILLISECONDS.toNanos(100), "hedged p99 " + p99(hedged));
+    }
+
+    @Test
+    void attemptCutOffByTheTimeoutIsInterrupted() throws Exception {
+        final UpstreamPool pool = UpstreamPool.builder("hanging").urls(hangingStub().toString()).build();
+        final CountDownLatch attemptEnded = new CountDownLatch(1);
+        try(HedgedExecutor executor = HedgedExecutor.builder(pool)
+                .timeout(0.99, 3, Duration.ofMillis(100), Duration.ofMillis(100))
+                .build()){
+            final CompletableFuture<String> result = executor.execute(base -> {
+                try {
+                    return read(base);
+                } finally {
+                    attemptEnded.countDown();
+                }
+            }, e -> true);
+
+            final ExecutionException timeout = assertThrows(ExecutionException.class, result::get);
+            assertInstanceOf(TimeoutException.class, timeout.getCause());
+            // The socket read is aborted instead of waiting for the stub, which answers after 10s
+            assertTrue(attemptEnded.await(2, TimeUnit.SECONDS), "attempt still running after the timeout");
+            assertEquals(1, executor.timeouts());
+        }
+        // The instance is released right after the call gave up
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while(pool.instances().getFirst().outstanding() > 0 && System.nanoTime() < deadline){
+            Thread.sleep(10);
+        }
+        assertEquals(0, pool.instances().getFirst().outstanding());
+    }
+
+    @Test
+    void attemptCutOffByTheTimeoutCountsTowardsTheTail() throws Exception {
+        final UpstreamPool pool = UpstreamPool.builder("hanging").urls(hangingStub().toString()).build();
+        try(HedgedExecutor executor = HedgedExecutor.builder(pool)
+                .window(16, 1)
+                .timeout(0.99, 3, Duration.ofMillis(100), Duration.ofMillis(100))
+                .build()){
+            assertEquals(-1, executor.hedgeDelayNanos());
+
+            assertThrows(ExecutionException.class, executor.execute(HedgedExecutorTest::read, e -> true)::get);
+
+            // The attempt never answered, yet the time it ran until it was cut off is in the window
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while(executor.hedgeDelayNanos() < 0 && System.nanoTime() < deadline){
+                Thread.sleep(10);
+            }
+            assertTrue(executor.hedgeDelayNanos() >= TimeUnit.MILLISECONDS.toNanos(90),
+                    "hedge delay " + executor.hedgeDelayNanos());
+        }
+    }
+
+    @Test
+    void budgetCapsHedgesAtTheConfiguredRatio() {
+        final HedgeBudget budget = new HedgeBudget(0.1, 2);
+
+        assertFalse(budget.tryAcquire());
+        for(int i = 0; i < 10; i++){
+            budget.onRequest();
+        }
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+
+        for(int i = 0; i < 100; i++){
+            budget.onRequest();
+        }
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    void percentilesNeedMinimumSamplesAndRefreshPeriodically() {
+        final AtomicLong nanos = new AtomicLong();
+        final LatencyTracker tracker = new LatencyTracker(100, 10, TimeUnit.MILLISECONDS.toNanos(100), nanos::get);
+
+        for(int i = 1; i <= 9; i++){
+            tracker.record(i);
+        }
+        assertEquals(-1, tracker.percentile(0.5));
+
+        tracker.record(10);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(5, tracker.percentile(0.5));
+        assertEquals(10, tracker.percentile(0.99));
+
+        tracker.record(1000);
+        assertEquals(10, tracker.percentile(0.99));
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(1000, tracker.percentile(0.99));
+    }
+
+    private static long p99(final long[] latencies) {
+        final long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(0.99 * sorted.length) - 1];
+    }
+
+    private String get(final URI base) {
+        try {
+            return httpClient.send(HttpRequest.newBuilder(URI.create(base + "/api")).build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Blocking read over a plain socket, like the pooled HTTP client does
+    private static String read(final URI base) {
+        try (InputStream in = URI.create(base + "/api").toURL().openStream()) {
+            return new String(in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Local instance that takes 10s to answer
+    private URI hangingStub() throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        stubExecutors.add(executor);
+        server.setExecutor(executor);
+        server.createContext("/api", exchange -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.start();
+        stubs.add(server);
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    // Local instance answering in 2ms, except every 50th request which takes 300ms
+    private URI stub() throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        final AtomicInteger requests = new AtomicInteger();
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        stubExecutors.add(executor);
+        server.setExecutor(executor);
+        server.createContext("/api", exchange -> {
+            try {
+                Thread.sleep(requests.incrementAndGet() % 50 == 0 ? 300 : 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final byte[] body = "ok".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        stubs.add(server);
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+}
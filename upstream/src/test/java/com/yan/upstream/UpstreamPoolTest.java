@@ -0,0 +1,199 @@
+package com.yan.upstream;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamPoolTest {
+    private final List<HttpServer> stubs = new ArrayList<>();
+    private final List<ExecutorService> stubExecutors = new ArrayList<>();
+    private final Map<URI, AtomicInteger> served = new ConcurrentHashMap<>();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @AfterEach
+    void stopStubs() {
+        stubs.forEach(stub -> stub.stop(0));
+        stubExecutors.forEach(ExecutorService::shutdownNow);
+    }
+
+    @Test
+    void sendsLessTrafficToSlowInstances() throws Exception {
+        final URI fastA = stub(5, 200);
+        final URI fastB = stub(5, 200);
+        final URI slow = stub(80, 200);
+        final UpstreamPool pool = UpstreamPool.builder("stubs")
+                .urls(fastA + "," + fastB + "," + slow)
+                // Short decay so the estimates settle within the test
+                .decay(Duration.ofMillis(250))
+                .build();
+
+        try(ExecutorService clients = Executors.newFixedThreadPool(6)){
+            final List<Future<?>> calls = new ArrayList<>();
+            for(int i = 0; i < 600; i++){
+                calls.add(clients.submit(() -> pool.execute(this::get, e -> true)));
+            }
+            for(Future<?> call : calls){
+                call.get();
+            }
+        }
+
+        final int total = served.values().stream().mapToInt(AtomicInteger::get).sum();
+        assertEquals(600, total);
+        // Round robin would give the slow instance a third of the requests
+        assertTrue(served.get(slow).get() < total / 5, "slow instance served " + served.get(slow).get());
+    }
+
+    @Test
+    void skipsInstancesFailingHealthChecks() throws Exception {
+        final URI healthy = stub(0, 200);
+        final URI failing = stub(0, 503);
+        final UpstreamPool pool = UpstreamPool.builder("stubs").urls(healthy + "," + failing).build();
+
+        try(UpstreamHealthChecker checker = new UpstreamHealthChecker(pool, "/actuator/health",
+                Duration.ofSeconds(1), Duration.ofSeconds(1))){
+            checker.checkAll();
+            final UpstreamInstance failingInstance = pool.instances().get(1);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while(failingInstance.isHealthy() && System.nanoTime() < deadline){
+                Thread.sleep(10);
+            }
+
+            assertFalse(failingInstance.isAvailable());
+            for(int i = 0; i < 50; i++){
+                assertEquals(healthy, pool.choose().uri());
+            }
+        }
+    }
+
+    @Test
+    void ejectsInstanceAfterConsecutiveFailuresUntilEjectionEnds() {
+        final AtomicLong nanos = new AtomicLong();
+        final UpstreamPool pool = UpstreamPool.builder("stubs")
+                .urls("http://a:8080,http://b:8080")
+                .failureThreshold(2)
+                .ejection(Duration.ofSeconds(5))
+                .nanoClock(nanos::get)
+                .build();
+        final UpstreamInstance a = pool.instances().get(0);
+        final UpstreamInstance b = pool.instances().get(1);
+
+        a.end(a.begin(), false);
+        a.end(a.begin(), false);
+
+        assertFalse(a.isAvailable());
+        for(int i = 0; i < 50; i++){
+            assertSame(b, pool.choose());
+        }
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertTrue(a.isAvailable());
+    }
+
+    @Test
+    void choosesThePreferredInstanceWhileItIsAvailable() {
+        final AtomicLong nanos = new AtomicLong();
+        final UpstreamPool pool = UpstreamPool.builder("stubs")
+                .urls("http://a:8080,http://b:8080")
+                .failureThreshold(1)
+                .nanoClock(nanos::get)
+                .build();
+        final UpstreamInstance b = pool.instances().get(1);
+        // b is the more expensive one, so only the preference sends requests there
+        b.begin();
+
+        for(int i = 0; i < 20; i++){
+            assertSame(b, pool.choosePreferring(URI.create("http://b:8080")));
+        }
+        b.end(nanos.get(), false);
+        assertSame(pool.instances().get(0), pool.choosePreferring(URI.create("http://b:8080")));
+        assertSame(pool.instances().get(0), pool.choosePreferring(URI.create("http://unknown:8080")));
+    }
+
+    @Test
+    void latencyFollowsPeaksAtOnceAndDecaysSlowly() {
+        final AtomicLong nanos = new AtomicLong();
+        final UpstreamInstance instance = UpstreamPool.builder("stubs")
+                .urls("http://a:8080")
+                .decay(Duration.ofSeconds(10))
+                .nanoClock(nanos::get)
+                .build()
+                .choose();
+
+        observe(instance, nanos, 10);
+        observe(instance, nanos, 100);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), instance.latencyNanos(), 1);
+
+        observe(instance, nanos, 10);
+        assertTrue(instance.latencyNanos() > TimeUnit.MILLISECONDS.toNanos(95));
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(40));
+        observe(instance, nanos, 10);
+        assertTrue(instance.latencyNanos() < TimeUnit.MILLISECONDS.toNanos(15));
+    }
+
+    private static void observe(final UpstreamInstance instance, final AtomicLong nanos, final long latencyMillis) {
+        final long started = instance.begin();
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        instance.end(started, true);
+    }
+
+    private String get(final URI base) {
+        try {
+            return httpClient.send(HttpRequest.newBuilder(URI.create(base + "/api")).build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Local instance answering every path after the injected latency
+    private URI stub(final long latencyMillis, final int healthStatus) throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        final URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+        served.put(uri, new AtomicInteger());
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        stubExecutors.add(executor);
+        server.setExecutor(executor);
+        server.createContext("/actuator/health", exchange -> {
+            exchange.sendResponseHeaders(healthStatus, -1);
+            exchange.close();
+        });
+        server.createContext("/api", exchange -> {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            served.get(uri).incrementAndGet();
+            final byte[] body = "ok".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        stubs.add(server);
+        return uri;
+    }
+}